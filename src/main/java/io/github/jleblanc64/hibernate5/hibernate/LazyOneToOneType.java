@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.hibernate;
+
+import io.github.jleblanc64.hibernate5.meta.MetaOption;
+import org.hibernate.HibernateException;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.internal.MergeContext;
+import org.hibernate.type.OneToOneType;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.github.jleblanc64.hibernate5.hibernate.Utils.*;
+
+// nullable @OneToOne mapped with @LazyToOne(NO_PROXY): Hibernate cannot proxy it and loads it with its owner,
+// on an Option field it is resolved to an Option loading it on first access instead
+public class LazyOneToOneType extends OneToOneType {
+    private final MetaOption<?> metaOption;
+
+    // resolved on the first owner seen
+    private volatile Optional<Field> optionField;
+    private volatile Boolean deferrable;
+
+    public LazyOneToOneType(OneToOneType original, MetaOption<?> metaOption) {
+        super(original, original.getAssociatedEntityName());
+        this.metaOption = metaOption;
+    }
+
+    @Override
+    public Object resolve(Object value, SharedSessionContractImplementor session, Object owner, Boolean overridingEager) throws HibernateException {
+        if (value == null || isNull(owner, session) || isEager(overridingEager) || !isDeferrable(owner, session))
+            return super.resolve(value, session, owner, overridingEager);
+
+        // once loaded, the owner field gets the plain Option, unless the application replaced it meanwhile
+        var lazy = new AtomicReference<Object>();
+        lazy.set(metaOption.lazy(() -> {
+            var loaded = load(value, session);
+            var field = optionField(owner);
+            if (getRefl(owner, field) == lazy.get())
+                setRefl(owner, field, metaOption.fromValue(loaded));
+
+            return loaded;
+        }));
+
+        return lazy.get() == null ? super.resolve(value, session, owner, overridingEager) : lazy.get();
+    }
+
+    // the merged entity reads as null while its Option is not loaded: that is an unchanged association, not a removed one,
+    // so the managed copy keeps its own Option
+    @Override
+    public Object replace(Object original, Object target, SharedSessionContractImplementor session, Object owner, Map copyCache) throws HibernateException {
+        if (original != null || !(copyCache instanceof MergeContext))
+            return super.replace(original, target, session, owner, copyCache);
+
+        var merged = ((MergeContext) copyCache).invertMap().get(owner);
+        var field = merged == null ? null : optionField(merged);
+        if (field == null || !isUnresolved(getRefl(merged, field)))
+            return super.replace(original, target, session, owner, copyCache);
+
+        var current = getRefl(owner, field);
+        return metaOption.isSuperClassOf(current) ? current : target;
+    }
+
+    private boolean isUnresolved(Object o) {
+        return metaOption.isSuperClassOf(o) && !metaOption.isResolved(o);
+    }
+
+    // what EntityType.resolve does, in the session the owner was loaded in
+    private Object load(Object value, SharedSessionContractImplementor session) {
+        if (!session.isOpen())
+            throw new LazyInitializationException("could not initialize Option of " + getAssociatedEntityName() + " - no Session");
+
+        if (isReferenceToPrimaryKey())
+            return resolveIdentifier((Serializable) value, session, true);
+
+        return loadByUniqueKey(getAssociatedEntityName(), uniqueKeyPropertyName, value, session);
+    }
+
+    // Option field whose cascades never need the association: a remove or an orphan removal would load it
+    private boolean isDeferrable(Object owner, SharedSessionContractImplementor session) {
+        if (deferrable == null) {
+            var persister = session.getEntityPersister(null, owner);
+            var i = persister.getEntityMetamodel().getPropertyIndexOrNull(getPropertyName());
+            var cascade = i == null ? null : persister.getPropertyCascadeStyles()[i];
+            deferrable = optionField(owner) != null && cascade != null
+                    && !cascade.doCascade(CascadingActions.DELETE) && !cascade.hasOrphanDelete();
+        }
+
+        return deferrable;
+    }
+
+    // null if the property is not mapped on an Option field
+    private Field optionField(Object owner) {
+        if (optionField == null) {
+            var field = findField(owner.getClass(), getPropertyName());
+            optionField = Optional.ofNullable(field != null && metaOption.isSuperClassOf(field.getType()) ? field : null);
+        }
+
+        return optionField.orElse(null);
+    }
+}
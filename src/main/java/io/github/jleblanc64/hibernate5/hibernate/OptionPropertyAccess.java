@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.hibernate;
+
+import io.github.jleblanc64.hibernate5.meta.MetaOption;
+import lombok.AllArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.property.access.spi.Getter;
+import org.hibernate.property.access.spi.PropertyAccess;
+import org.hibernate.property.access.spi.PropertyAccessStrategy;
+import org.hibernate.property.access.spi.Setter;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+// Getter / Setter pair only built for Option typed fields, other properties keep the plain Hibernate accessors
+@AllArgsConstructor
+public class OptionPropertyAccess implements PropertyAccess {
+    private final PropertyAccess delegate;
+    private final Getter getter;
+    private final Setter setter;
+
+    public static PropertyAccess of(PropertyAccess access, MetaOption<?> metaOption) {
+        if (!metaOption.isSuperClassOf(access.getGetter().getReturnType()))
+            return access;
+
+        return new OptionPropertyAccess(access, new OptionGetter(access.getGetter(), metaOption),
+                new OptionSetter(access.getSetter(), metaOption));
+    }
+
+    @Override
+    public PropertyAccessStrategy getPropertyAccessStrategy() {
+        return delegate.getPropertyAccessStrategy();
+    }
+
+    @Override
+    public Getter getGetter() {
+        return getter;
+    }
+
+    @Override
+    public Setter getSetter() {
+        return setter;
+    }
+
+    @AllArgsConstructor
+    public static class OptionGetter implements Getter {
+        private final Getter delegate;
+        private final MetaOption<?> metaOption;
+
+        @Override
+        public Object get(Object owner) {
+            return unwrap(delegate.get(owner));
+        }
+
+        @Override
+        public Object getForInsert(Object owner, Map mergeMap, SharedSessionContractImplementor session) {
+            return unwrap(delegate.getForInsert(owner, mergeMap, session));
+        }
+
+        // a lazy one-to-one not loaded yet reads as null, the inverse side is never written and its cascades do not delete
+        private Object unwrap(Object o) {
+            if (!metaOption.isSuperClassOf(o))
+                return o;
+
+            return metaOption.isResolved(o) ? metaOption.getOrNull(o) : null;
+        }
+
+        @Override
+        public Class getReturnType() {
+            return delegate.getReturnType();
+        }
+
+        @Override
+        public Member getMember() {
+            return delegate.getMember();
+        }
+
+        @Override
+        public String getMethodName() {
+            return delegate.getMethodName();
+        }
+
+        @Override
+        public Method getMethod() {
+            return delegate.getMethod();
+        }
+    }
+
+    @AllArgsConstructor
+    public static class OptionSetter implements Setter {
+        private final Setter delegate;
+        private final MetaOption<?> metaOption;
+
+        @Override
+        public void set(Object target, Object value, SessionFactoryImplementor factory) {
+            var option = metaOption.isSuperClassOf(value) ? value : metaOption.fromValue(value);
+            delegate.set(target, option, factory);
+        }
+
+        @Override
+        public String getMethodName() {
+            return delegate.getMethodName();
+        }
+
+        @Override
+        public Method getMethod() {
+            return delegate.getMethod();
+        }
+    }
+}
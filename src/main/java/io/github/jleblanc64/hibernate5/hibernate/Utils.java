@@ -15,14 +15,24 @@
  */
 package io.github.jleblanc64.hibernate5.hibernate;
 
+import com.google.common.collect.MapMaker;
 import io.github.jleblanc64.hibernate5.meta.WithClass;
 import io.github.jleblanc64.libcustom.functional.ListF;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.SneakyThrows;
 import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.mapping.Collection;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import static io.github.jleblanc64.libcustom.Reflection.getAllFields;
@@ -31,6 +41,31 @@ import static io.github.jleblanc64.libcustom.functional.ListF.f;
 public class Utils {
     private static Class PERSISTENT_COLLECTION_CLASS = AbstractPersistentCollection.class;
 
+    // unlocked handles, resolved once per (class, field) and (class, method, arg types)
+    private static final ClassValue<Map<String, MethodHandle>> GETTERS = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final ClassValue<Map<MethodKey, MethodHandle>> METHODS = new ClassValue<>() {
+        @Override
+        protected Map<MethodKey, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    // collection persister -> declared type of its field, registered when the persister is built
+    private static final Map<Object, Class<?>> PERSISTER_TYPES = new MapMaker().weakKeys().makeMap();
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class MethodKey {
+        private final String name;
+        private final Class<?>[] argTypes;
+    }
+
     @SneakyThrows
     private static Field roleToField(String role) {
         var i = role.lastIndexOf(".");
@@ -41,11 +76,38 @@ public class Utils {
     }
 
     public static boolean isOfType(Object pers, WithClass w) {
+        return w.isSuperClassOf(persisterFieldType(pers));
+    }
+
+    public static Class<?> persisterFieldType(Object pers) {
+        var type = PERSISTER_TYPES.get(pers);
+        if (type != null)
+            return type;
+
+        // not built by the PersisterFactoryImpl hook, like the persisters of a custom PersisterFactory
+        return PERSISTER_TYPES.computeIfAbsent(pers, Utils::roleType);
+    }
+
+    // role is the owner entity name followed by the property path, through the embeddables
+    static void registerPersister(Object pers, Collection mapping) {
+        Class<?> type = mapping.getOwner().getMappedClass();
+        var path = mapping.getRole().substring(mapping.getOwnerEntityName().length() + 1);
+        for (var name : path.split("\\.")) {
+            var field = type == null ? null : findField(type, name);
+            if (field == null)
+                return;
+
+            type = field.getType();
+        }
+
+        PERSISTER_TYPES.put(pers, type);
+    }
+
+    private static Class<?> roleType(Object pers) {
         var role = getRefl(pers, "navigableRole");
         var path = (String) getRefl(role, "fullPath");
 
-        var field = roleToField(path);
-        return w.isSuperClassOf(field.getType());
+        return roleToField(path).getType();
     }
 
     @SneakyThrows
@@ -63,12 +125,28 @@ public class Utils {
         return f(annotations).stream().anyMatch(a -> a instanceof javax.persistence.Entity);
     }
 
+    @SneakyThrows
     public static Object getRefl(Object o, String field) {
-        var f = findField(o.getClass(), field);
-        return getRefl(o, f);
+        var clazz = o.getClass();
+        var getter = GETTERS.get(clazz).computeIfAbsent(field, name -> getter(clazz, name));
+        return getter.invokeExact(o);
     }
 
-    private static Field findField(Class<?> clazz, String field) {
+    @SneakyThrows
+    private static MethodHandle getter(Class<?> clazz, String field) {
+        var f = findField(clazz, field);
+        if (f == null)
+            throw new RuntimeException("Field " + field + " not found in " + clazz.getName());
+
+        f.setAccessible(true);
+        var getter = MethodHandles.lookup().unreflectGetter(f);
+        if (Modifier.isStatic(f.getModifiers()))
+            getter = MethodHandles.dropArguments(getter, 0, Object.class);
+
+        return getter.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    static Field findField(Class<?> clazz, String field) {
         var currentClass = clazz;
         while (currentClass != null) {
             var found = f(currentClass.getDeclaredFields()).findSafe(f -> f.getName().equals(field));
@@ -110,13 +188,33 @@ public class Utils {
 
     @SneakyThrows
     public static Object invoke(Object o, String methodName, Object... args) {
-        var m = findMethod(o, methodName, args);
+        var clazz = o.getClass();
+        var argTypes = new Class<?>[args.length];
+        for (var i = 0; i < args.length; i++)
+            argTypes[i] = args[i] == null ? null : args[i].getClass();
+
+        var key = new MethodKey(methodName, argTypes);
+        var m = METHODS.get(clazz).computeIfAbsent(key, k -> method(clazz, methodName, args));
+        return m.invokeExact(o, args);
+    }
+
+    @SneakyThrows
+    private static MethodHandle method(Class<?> clazz, String methodName, Object... args) {
+        var m = findMethod(clazz, methodName, args);
+        if (m == null)
+            throw new RuntimeException("Method " + methodName + " not found in " + clazz.getName());
+
         m.setAccessible(true);
-        return m.invoke(o, args);
+        var handle = MethodHandles.lookup().unreflect(m).asFixedArity();
+        if (Modifier.isStatic(m.getModifiers()))
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+
+        return handle.asSpreader(Object[].class, args.length)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
     }
 
-    private static Method findMethod(Object o, String methodName, Object... args) {
-        var currentClass = o.getClass();
+    private static Method findMethod(Class<?> clazz, String methodName, Object... args) {
+        var currentClass = clazz;
         while (currentClass != null) {
             var match = f(currentClass.getDeclaredMethods()).findSafe(m -> matches(m, methodName, args));
             if (match != null)
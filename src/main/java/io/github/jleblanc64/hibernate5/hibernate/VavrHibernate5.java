@@ -21,6 +21,7 @@ import io.github.jleblanc64.hibernate5.hibernate.duplicate.MyCollectionType;
 import io.github.jleblanc64.hibernate5.hibernate.duplicate.TypeImpl;
 import io.github.jleblanc64.hibernate5.impl.MetaListImpl;
 import io.github.jleblanc64.hibernate5.impl.MetaOptionImpl;
+import io.github.jleblanc64.hibernate5.impl.MetaSeqImpl;
 import io.github.jleblanc64.hibernate5.impl.MetaSetImpl;
 import io.github.jleblanc64.hibernate5.jackson.VavrJackson;
 import io.github.jleblanc64.hibernate5.meta.*;
@@ -28,21 +29,45 @@ import io.github.jleblanc64.hibernate5.spring.OverrideContentType;
 import io.github.jleblanc64.hibernate5.spring.VavrSpring;
 import io.github.jleblanc64.libcustom.LibCustom;
 import lombok.SneakyThrows;
+import org.hibernate.HibernateException;
+import org.hibernate.annotations.CollectionId;
 import org.hibernate.annotations.common.reflection.ReflectionManager;
+import org.hibernate.annotations.common.reflection.XProperty;
+import org.hibernate.annotations.common.reflection.java.JavaReflectionManager;
 import org.hibernate.annotations.common.reflection.java.JavaXMember;
+import org.hibernate.annotations.common.reflection.java.generics.TypeEnvironment;
 import org.hibernate.cfg.AccessType;
 import org.hibernate.cfg.PropertyInferredData;
 import org.hibernate.cfg.annotations.BagBinder;
 import org.hibernate.cfg.annotations.CollectionBinder;
+import org.hibernate.cfg.annotations.IdBagBinder;
+import org.hibernate.cfg.annotations.ListBinder;
 import org.hibernate.cfg.annotations.SetBinder;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.CollectionKey;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.internal.FlushVisitor;
+import org.hibernate.event.internal.WrapVisitor;
 import org.hibernate.metamodel.model.domain.internal.PluralAttributeBuilder;
 import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.internal.PersisterFactoryImpl;
+import org.hibernate.pretty.MessageHelper;
+import org.hibernate.property.access.internal.PropertyAccessEnhancedImpl;
+import org.hibernate.property.access.internal.PropertyAccessMixedImpl;
+import org.hibernate.property.access.internal.PropertyAccessStrategyFieldImpl;
+import org.hibernate.property.access.spi.Getter;
+import org.hibernate.property.access.spi.PropertyAccess;
+import org.hibernate.property.access.spi.Setter;
 import org.hibernate.type.BagType;
 import org.hibernate.type.CollectionType;
+import org.hibernate.type.IdentifierBagType;
+import org.hibernate.type.ListType;
+import org.hibernate.type.OneToOneType;
 import org.hibernate.type.SetType;
 
 import javax.persistence.metamodel.PluralAttribute;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -50,26 +75,41 @@ import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static io.github.jleblanc64.hibernate5.hibernate.Utils.*;
+import static java.util.stream.Collectors.toList;
 
 public class VavrHibernate5 {
+    // only used when the metadata build does not run on a JavaReflectionManager
+    private static final JavaReflectionManager REFLECTION_MANAGER = new JavaReflectionManager();
+
     public static void override() {
         var metaList = new MetaListImpl();
         var metaOption = new MetaOptionImpl();
         var metaSet = new MetaSetImpl();
+        var metaSeq = new MetaSeqImpl();
 
-        overrideCustom(metaList, metaOption, metaSet);
+        overrideCustom(metaList, metaOption, metaSet, metaSeq);
     }
 
     public static void overrideCustom(MetaList metaList, MetaOption metaOption, MetaSet metaSet) {
-        overrideCustom(metaList);
+        overrideCustom(metaList, metaOption, metaSet, null);
+    }
+
+    public static void overrideCustom(MetaList metaList, MetaOption metaOption, MetaSet metaSet, MetaSeq metaSeq) {
+        var metaColls = newArrayList((MetaColl) metaList);
         if (metaSet != null)
-            overrideCustom(metaSet);
+            metaColls.add(metaSet);
+        if (metaSeq != null)
+            metaColls.add(metaSeq);
+
+        overrideCustom(new MetaLookup<>(metaColls));
 
         VavrSpring.overrideCustom(metaList);
 
         var metas = newArrayList(metaList, metaOption);
         if (metaSet != null)
             metas.add(metaSet);
+        if (metaSeq != null)
+            metas.add(metaSeq);
 
         VavrJackson.overrideCustom(metas.toArray(new WithClass[0]));
 
@@ -81,89 +121,179 @@ public class VavrHibernate5 {
         LibCustom.load();
     }
 
+    // one hook per Hibernate method, dispatching to the matching meta
     @SneakyThrows
-    private static void overrideCustom(MetaColl meta) {
-        var bag = meta.bag();
-
+    private static void overrideCustom(MetaLookup<MetaColl> metas) {
         LibCustom.modifyArg(org.hibernate.cfg.AnnotationBinder.class, "processElementAnnotations", 2, args -> {
             var pid = (PropertyInferredData) args[2];
             var p = pid.getProperty();
             var type = (Type) getRefl(p, "type");
-            var at = (AccessType) getRefl(pid, "defaultAccess");
-            var rm = (ReflectionManager) getRefl(pid, "reflectionManager");
-            var j = JavaXProperty.of((JavaXMember) p, type, meta);
 
             if (!(type instanceof ParameterizedType))
                 return LibCustom.ORIGINAL;
 
-            var rawType = ((ParameterizedType) type).getRawType();
-            if (meta.isSuperClassOf(rawType)) {
-                var f = (Field) j.getMember();
-                var jOver = JavaXProperty.of(f, type, j, meta);
-                return new PropertyInferredData(pid.getDeclaringClass(), jOver, at.getType(), rm);
+            var meta = metas.of(((ParameterizedType) type).getRawType());
+            if (meta != null) {
+                var at = (AccessType) getRefl(pid, "defaultAccess");
+                var rm = (ReflectionManager) getRefl(pid, "reflectionManager");
+                var factory = rm instanceof JavaReflectionManager ? (JavaReflectionManager) rm : REFLECTION_MANAGER;
+
+                var j = JavaXProperty.of((JavaXMember) p, type, factory, meta);
+                return new PropertyInferredData(pid.getDeclaringClass(), j, at.getType(), rm);
             }
 
             return LibCustom.ORIGINAL;
         });
 
         LibCustom.override(org.hibernate.metamodel.internal.AttributeFactory.class, "determineCollectionType", args -> {
-            var clazz = (Class) args[0];
-            var type = meta.isSet() ? PluralAttribute.CollectionType.SET : PluralAttribute.CollectionType.LIST;
-            if (meta.isSuperClassOf(clazz))
-                return type;
+            var meta = metas.of(args[0]);
+            if (meta == null)
+                return LibCustom.ORIGINAL;
 
-            return LibCustom.ORIGINAL;
+            return meta.isSet() ? PluralAttribute.CollectionType.SET : PluralAttribute.CollectionType.LIST;
         });
 
+        var setAttrConstructor = pluralAttributeConstructor("org.hibernate.metamodel.model.domain.internal.SetAttributeImpl");
+        var listAttrConstructor = pluralAttributeConstructor("org.hibernate.metamodel.model.domain.internal.ListAttributeImpl");
         LibCustom.overrideWithSelf(org.hibernate.metamodel.model.domain.internal.PluralAttributeBuilder.class, "build", x -> {
             var self = x.self;
 
-            var collectionClass = (Class) getRefl(self, "collectionClass");
-            var className = meta.isSet() ? "org.hibernate.metamodel.model.domain.internal.SetAttributeImpl" :
-                    "org.hibernate.metamodel.model.domain.internal.ListAttributeImpl";
-
-            var listAttrClass = Class.forName(className);
-            var constructor = listAttrClass.getDeclaredConstructor(PluralAttributeBuilder.class);
-            constructor.setAccessible(true);
-
-            if (meta.isSuperClassOf(collectionClass))
-                return constructor.newInstance(self);
+            var meta = metas.of(getRefl(self, "collectionClass"));
+            if (meta == null)
+                return LibCustom.ORIGINAL;
 
-            return LibCustom.ORIGINAL;
+            return (meta.isSet() ? setAttrConstructor : listAttrConstructor).newInstance(self);
         });
 
         LibCustom.modifyArg(Class.forName("org.hibernate.type.CollectionType"), "getElementsIterator", 0, args -> {
             var collection = args[0];
-            if (meta.isSuperClassOf(collection))
+            var meta = metas.of(collection);
+            if (meta != null)
                 return meta.toJava(collection);
 
             return collection;
         });
 
         LibCustom.override(CollectionBinder.class, "getBinderFromBasicCollectionType", args -> {
-            var binder = meta.isSet() ? new SetBinder(false) : new BagBinder();
-            return meta.isSuperClassOf(args[0]) ? binder : LibCustom.ORIGINAL;
+            var meta = metas.of(args[0]);
+            if (meta == null)
+                return LibCustom.ORIGINAL;
+
+            // an indexed seq without @OrderColumn fails in ListBinder, the same way a java.util.List would with @IndexColumn missing
+            if (meta.isSet())
+                return new SetBinder(false);
+            if (meta.isIndexed())
+                return new ListBinder();
+
+            var property = (XProperty) args[1];
+            return meta.idBag() != null && property.isAnnotationPresent(CollectionId.class) ? new IdBagBinder() : new BagBinder();
         });
 
-        var typeClass = meta.isSet() ? SetType.class : BagType.class;
-        LibCustom.override(typeClass, "instantiate", args -> {
-            if (args.length == 1)
+        var typeClasses = metas.metas().stream().map(VavrHibernate5::typeClass).distinct().collect(toList());
+        if (metas.metas().stream().anyMatch(m -> m.idBag() != null))
+            typeClasses.add(IdentifierBagType.class);
+
+        // field type of each collection role resolved once, at bootstrap, for the instantiate hooks below
+        // the overload taking the persister class is called by this one
+        LibCustom.modifyReturn(PersisterFactoryImpl.class, "createCollectionPersister", argsR -> {
+            if (argsR.args[0] instanceof org.hibernate.mapping.Collection)
+                registerPersister(argsR.returned, (org.hibernate.mapping.Collection) argsR.args[0]);
+
+            return argsR.returned;
+        });
+
+        for (var typeClass : typeClasses) {
+            LibCustom.override(typeClass, "instantiate", args -> {
+                if (args.length == 1)
+                    return LibCustom.ORIGINAL;
+
+                var pers = (AbstractCollectionPersister) args[1];
+                var meta = metas.of(persisterFieldType(pers));
+                var bag = meta == null ? null : bagProvider(meta, typeClass);
+                if (bag != null)
+                    return checkPersistentBag(bag.of((SharedSessionContractImplementor) args[0], null));
+
                 return LibCustom.ORIGINAL;
+            });
 
-            var pers = (AbstractCollectionPersister) args[1];
-            if (isOfType(pers, meta))
-                return checkPersistentBag(bag.of((SharedSessionContractImplementor) args[0], null));
+            LibCustom.override(typeClass, "wrap", args -> {
+                var arg1 = args[1];
+                var meta = metas.of(arg1);
+                var bag = meta == null ? null : bagProvider(meta, typeClass);
 
-            return LibCustom.ORIGINAL;
+                if (bag != null) {
+                    var c = meta.toJava(arg1);
+                    return checkPersistentBag(bag.of((SharedSessionContractImplementor) args[0], c));
+                }
+
+                return LibCustom.ORIGINAL;
+            });
+
+            // ListType.indexOf casts the collection to java.util.List, used for the index of unidirectional one-to-many elements
+            if (typeClass == ListType.class)
+                LibCustom.override(ListType.class, "indexOf", args -> {
+                    var meta = metas.of(args[0]);
+                    if (meta == null)
+                        return LibCustom.ORIGINAL;
+
+                    var l = (java.util.List) meta.toJava(args[0]);
+                    for (int i = 0; i < l.size(); i++)
+                        if (l.get(i) == args[1])
+                            return i;
+
+                    return null;
+                });
+        }
+
+        // a field set to a new vavr value derived from its collection (items.append(x)) would make Hibernate dereference the
+        // managed collection and recreate every row: the wrapper of the new value takes over the managed one for the owner
+        // and role, and the flush diffs it with the snapshot
+        LibCustom.overrideWithSelf(WrapVisitor.class, "processCollection", x -> {
+            var collection = x.args[0];
+            if (collection instanceof PersistentCollection)
+                return LibCustom.ORIGINAL;
+
+            var meta = metas.of(collection);
+            var type = (CollectionType) x.args[1];
+            var session = (SharedSessionContractImplementor) getRefl(x.self, "session");
+            var managed = meta == null ? null : managedCollection(session, getRefl(x.self, "entity"), type);
+            if (managed == null || metas.of(managed) != meta)
+                return LibCustom.ORIGINAL;
+
+            // same elements: the plain value given to the owner of a collection loaded read-only stays in the field,
+            // the FlushVisitor hook below keeps the wrapper reachable
+            if (MyCollectionType.sameElements(managed, meta.toJava(collection)))
+                return managed.getStoredSnapshot() == null ? null : managed;
+
+            // loaded read-only, no snapshot to diff with
+            if (managed.getStoredSnapshot() == null)
+                return LibCustom.ORIGINAL;
+
+            var fresh = (PersistentCollection) type.wrap(session, collection);
+            MyCollectionType.takeOver(fresh, managed, session);
+            return fresh;
         });
 
-        LibCustom.override(typeClass, "wrap", args -> {
-            var arg1 = args[1];
+        // FlushVisitor skips values which are not a PersistentCollection: the wrapper behind the plain value of a read-only
+        // owner would be dereferenced, and its rows deleted
+        LibCustom.modifyArgWithSelf(FlushVisitor.class, "processCollection", 0, x -> {
+            var collection = x.args[0];
+            if (collection instanceof PersistentCollection || metas.of(collection) == null)
+                return collection;
 
-            if (meta.isSuperClassOf(arg1)) {
-                var c = meta.toJava(arg1);
-                return checkPersistentBag(bag.of((SharedSessionContractImplementor) args[0], c));
-            }
+            var session = (SharedSessionContractImplementor) getRefl(x.self, "session");
+            var managed = managedCollection(session, getRefl(x.self, "owner"), (CollectionType) x.args[1]);
+            return managed == null || managed.getStoredSnapshot() != null ? collection : managed;
+        });
+
+        // same check as for the collections of an immutable persister, a collection loaded read-only has no snapshot to diff with
+        LibCustom.overrideWithSelf(CollectionEntry.class, "preFlush", x -> {
+            var collection = (PersistentCollection) x.args[0];
+            var entry = (CollectionEntry) x.self;
+            if (collection.isDirty() && collection.wasInitialized() && collection.getStoredSnapshot() == null
+                    && entry.getLoadedPersister() != null && metas.of(collection) != null)
+                throw new HibernateException("changed a collection loaded read-only: "
+                        + MessageHelper.collectionInfoString(entry.getLoadedPersister().getRole(), entry.getLoadedKey()));
 
             return LibCustom.ORIGINAL;
         });
@@ -176,32 +306,85 @@ public class VavrHibernate5 {
         });
     }
 
+    private static Class<? extends CollectionType> typeClass(MetaColl meta) {
+        if (meta.isSet())
+            return SetType.class;
+
+        return meta.isIndexed() ? ListType.class : BagType.class;
+    }
+
+    // initialized collection loaded or wrapped for the owner and role, null if there is none
+    private static PersistentCollection managedCollection(SharedSessionContractImplementor session, Object owner, CollectionType type) {
+        if (owner == null)
+            return null;
+
+        var key = type.getKeyOfOwner(owner, session);
+        if (key == null)
+            return null;
+
+        var persister = session.getFactory().getMetamodel().collectionPersister(type.getRole());
+        var managed = session.getPersistenceContextInternal().getCollection(new CollectionKey(persister, key));
+        if (managed == null || !managed.wasInitialized() || managed.getOwner() != owner)
+            return null;
+
+        return managed;
+    }
+
+    // persistent collection of meta for the Hibernate collection type, null if meta is not mapped to it
+    private static BagProvider<?> bagProvider(MetaColl<?, ?> meta, Class<?> typeClass) {
+        if (typeClass == IdentifierBagType.class)
+            return meta.idBag();
+
+        return typeClass(meta) == typeClass ? meta.bag() : null;
+    }
+
     @SneakyThrows
-    private static void overrideCustom(MetaOption<?> metaOption) {
-        var setterFieldImplClass = Class.forName("org.hibernate.property.access.spi.SetterFieldImpl");
-        var getterFieldImplClass = Class.forName("org.hibernate.property.access.spi.GetterFieldImpl");
+    private static Constructor<?> pluralAttributeConstructor(String className) {
+        var constructor = Class.forName(className).getDeclaredConstructor(PluralAttributeBuilder.class);
+        constructor.setAccessible(true);
+        return constructor;
+    }
 
-        LibCustom.modifyArgWithSelf(setterFieldImplClass, "set", 1, argsSelf -> {
-            var args = argsSelf.args;
-            var value = args[1];
-            var self = argsSelf.self;
-            var field = (Field) getRefl(self, setterFieldImplClass.getDeclaredField("field"));
+    @SneakyThrows
+    private static void overrideCustom(MetaOption<?> metaOption) {
+        // only Option typed fields get wrapped accessors, other properties keep the plain Hibernate ones
+        LibCustom.modifyReturn(PropertyAccessStrategyFieldImpl.class, "buildPropertyAccess",
+                x -> OptionPropertyAccess.of((PropertyAccess) x.returned, metaOption));
 
-            if (metaOption.isSuperClassOf(field.getType()) && !metaOption.isSuperClassOf(value))
-                return metaOption.fromValue(value);
+        LibCustom.modifyReturn(PropertyAccessMixedImpl.class, "fieldGetter", x -> {
+            var field = (Field) x.args[2];
+            if (metaOption.isSuperClassOf(field.getType()))
+                return new OptionPropertyAccess.OptionGetter((Getter) x.returned, metaOption);
 
-            return LibCustom.ORIGINAL;
+            return x.returned;
         });
 
-        LibCustom.modifyReturn(getterFieldImplClass, "get", x -> {
-            var ret = x.returned;
-            if (metaOption.isSuperClassOf(ret))
-                return metaOption.getOrNull(ret);
+        for (var accessClass : newArrayList(PropertyAccessMixedImpl.class, PropertyAccessEnhancedImpl.class))
+            LibCustom.modifyReturn(accessClass, "fieldSetter", x -> {
+                var field = (Field) x.args[2];
+                if (metaOption.isSuperClassOf(field.getType()))
+                    return new OptionPropertyAccess.OptionSetter((Setter) x.returned, metaOption);
+
+                return x.returned;
+            });
+
+        // Hibernate cannot proxy the inverse side of a nullable @OneToOne and loads it with its owner:
+        // mapped lazy without proxy, it gets a type resolving Option fields to an Option loading it on first access
+        LibCustom.modifyReturn(Class.forName("org.hibernate.type.TypeFactory"), "oneToOne", x -> {
+            var args = x.args;
+            if (args.length != 9 || x.returned.getClass() != OneToOneType.class)
+                return x.returned;
+
+            var lazy = (boolean) args[4];
+            var unwrapProxy = (boolean) args[5];
+            var constrained = (boolean) args[8];
+            if (!lazy || !unwrapProxy || constrained)
+                return x.returned;
 
-            return ret;
+            return new LazyOneToOneType((OneToOneType) x.returned, metaOption);
         });
 
-        LibCustom.modifyArg(Class.forName("org.hibernate.annotations.common.reflection.java.JavaXProperty"), "create", 0, args -> {
+        LibCustom.override(Class.forName("org.hibernate.annotations.common.reflection.java.JavaXProperty"), "create", args -> {
             var member = args[0];
             if (member instanceof Field) {
                 var field = (Field) member;
@@ -214,7 +397,8 @@ public class VavrHibernate5 {
                 var ownerType = ((ParameterizedType) field.getGenericType()).getOwnerType();
 
                 if (metaOption.isSuperClassOf(typeRaw))
-                    return FieldCustomType.create(field, new TypeImpl((Class<?>) typeParam, new Type[]{}, ownerType));
+                    return FieldCustomType.create(field, new TypeImpl((Class<?>) typeParam, new Type[]{}, ownerType),
+                            (TypeEnvironment) args[1], (JavaReflectionManager) args[2]);
             }
 
             return LibCustom.ORIGINAL;
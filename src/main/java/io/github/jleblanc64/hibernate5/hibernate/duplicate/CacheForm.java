@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// second-level cache state of a collection: the disassembled elements, with all Long or Integer entity identifiers packed
+// in a long[] or int[] held by a one element array instead of an array of boxed ones; the state stays a Serializable[] as
+// CollectionCacheEntry.getState and StructuredCollectionCacheEntry expect, entries cached unpacked still assemble
+final class CacheForm {
+    static Serializable disassemble(Collection elements, CollectionPersister persister, SharedSessionContractImplementor session) {
+        var type = persister.getElementType();
+        var result = new Serializable[elements.size()];
+        var i = 0;
+        for (Object o : elements)
+            result[i++] = type.disassemble(o, session, null);
+
+        return type.isEntityType() ? pack(result) : result;
+    }
+
+    private static Serializable[] pack(Serializable[] ids) {
+        if (ids.length == 0)
+            return ids;
+
+        if (ids[0] instanceof Long) {
+            var longs = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                if (!(ids[i] instanceof Long))
+                    return ids;
+
+                longs[i] = (Long) ids[i];
+            }
+            return new Serializable[]{longs};
+        }
+
+        if (ids[0] instanceof Integer) {
+            var ints = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                if (!(ids[i] instanceof Integer))
+                    return ids;
+
+                ints[i] = (Integer) ids[i];
+            }
+            return new Serializable[]{ints};
+        }
+
+        return ids;
+    }
+
+    // the packed identifiers, null if the state is one Serializable per element
+    private static Object packed(Serializable disassembled, CollectionPersister persister) {
+        var state = (Serializable[]) disassembled;
+        if (state.length != 1 || !persister.getElementType().isEntityType())
+            return null;
+
+        return state[0] instanceof long[] || state[0] instanceof int[] ? state[0] : null;
+    }
+
+    static int size(Serializable disassembled, CollectionPersister persister) {
+        var packed = packed(disassembled, persister);
+        if (packed instanceof long[])
+            return ((long[]) packed).length;
+        if (packed instanceof int[])
+            return ((int[]) packed).length;
+
+        return ((Serializable[]) disassembled).length;
+    }
+
+    static void assemble(Serializable disassembled, CollectionPersister persister, SharedSessionContractImplementor session,
+                         Object owner, Consumer<Object> add) {
+        var type = persister.getElementType();
+        var packed = packed(disassembled, persister);
+        if (packed instanceof long[]) {
+            for (long id : (long[]) packed)
+                add.accept(type.assemble(id, session, owner));
+        } else if (packed instanceof int[]) {
+            for (int id : (int[]) packed)
+                add.accept(type.assemble(id, session, owner));
+        } else {
+            for (Serializable item : (Serializable[]) disassembled)
+                add.accept(type.assemble(item, session, owner));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+
+import java.util.List;
+
+// occurrences of each element of a bag and of its snapshot, equality being Type.isSame
+// open addressing on the int Type.getHashCode, so that counting both sides is linear
+// entity elements are counted by identifier, like their rows: the hashCode / equals of an entity may load lazy state or
+// recurse (Lombok @Data on both sides), Hibernate's PersistentBag never calls hashCode; unsaved ones are counted by reference
+final class ElementCounts {
+    final List bag;
+    final List snapshot;
+
+    // element type, identifier type for entity elements
+    private final Type type;
+    private final EntityPersister entityPersister;
+    private final SessionFactoryImplementor factory;
+    private final int mask;
+    private final int[] hashes;
+    private final Object[] keys;
+    private final int[] inBag;
+    private final int[] inSnapshot;
+    private int nullsInBag;
+    private int nullsInSnapshot;
+
+    ElementCounts(List bag, List snapshot, Type elementType, SessionFactoryImplementor factory) {
+        this.bag = bag;
+        this.snapshot = snapshot;
+        this.factory = factory;
+
+        var persister = elementType.isEntityType() ? ((EntityType) elementType).getAssociatedJoinable(factory) : null;
+        entityPersister = persister instanceof EntityPersister && ((EntityPersister) persister).canExtractIdOutOfEntity()
+                ? (EntityPersister) persister : null;
+        type = entityPersister != null ? entityPersister.getIdentifierType() : elementType;
+
+        // load factor <= 0.5
+        var capacity = Integer.highestOneBit(Math.max(bag.size() + snapshot.size(), 1) * 2 - 1) << 1;
+        mask = capacity - 1;
+        hashes = new int[capacity];
+        keys = new Object[capacity];
+        inBag = new int[capacity];
+        inSnapshot = new int[capacity];
+
+        for (Object o : bag)
+            if (o == null)
+                nullsInBag++;
+            else
+                inBag[add(key(o))]++;
+
+        for (Object o : snapshot)
+            if (o == null)
+                nullsInSnapshot++;
+            else
+                inSnapshot[add(key(o))]++;
+    }
+
+    int inBag(Object o) {
+        if (o == null)
+            return nullsInBag;
+
+        var key = key(o);
+        var slot = slot(key, hash(key));
+        return keys[slot] == null ? 0 : inBag[slot];
+    }
+
+    int inSnapshot(Object o) {
+        if (o == null)
+            return nullsInSnapshot;
+
+        var key = key(o);
+        var slot = slot(key, hash(key));
+        return keys[slot] == null ? 0 : inSnapshot[slot];
+    }
+
+    // same elements with the same multiplicities on both sides
+    boolean sameCounts() {
+        if (nullsInBag != nullsInSnapshot)
+            return false;
+
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != null && inBag[i] != inSnapshot[i])
+                return false;
+
+        return true;
+    }
+
+    // the identifier of an entity, read without initializing a proxy; the element itself otherwise
+    private Object key(Object o) {
+        if (entityPersister == null)
+            return o;
+
+        if (o instanceof HibernateProxy) {
+            var id = ((HibernateProxy) o).getHibernateLazyInitializer().getInternalIdentifier();
+            return id == null ? o : id;
+        }
+
+        var id = entityPersister.getIdentifier(o, (SharedSessionContractImplementor) null);
+        return id == null ? o : id;
+    }
+
+    private boolean isUnsaved(Object key) {
+        return entityPersister != null && (key instanceof HibernateProxy || entityPersister.getMappedClass().isInstance(key));
+    }
+
+    private int hash(Object key) {
+        if (entityPersister == null)
+            return type.getHashCode(key);
+
+        return isUnsaved(key) ? System.identityHashCode(key) : type.getHashCode(key, factory);
+    }
+
+    private boolean same(Object k1, Object k2) {
+        if (entityPersister == null)
+            return type.isSame(k1, k2);
+
+        return k1 == k2 || !isUnsaved(k1) && !isUnsaved(k2) && type.isEqual(k1, k2, factory);
+    }
+
+    private int add(Object key) {
+        var hash = hash(key);
+        var slot = slot(key, hash);
+        if (keys[slot] == null) {
+            keys[slot] = key;
+            hashes[slot] = hash;
+        }
+
+        return slot;
+    }
+
+    // slot holding a key same as key, or the empty slot where it would go
+    private int slot(Object key, int hash) {
+        var h = hash * 0x9E3779B9;
+        var slot = (h ^ h >>> 16) & mask;
+        while (keys[slot] != null && (hashes[slot] != hash || !same(keys[slot], key)))
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+}
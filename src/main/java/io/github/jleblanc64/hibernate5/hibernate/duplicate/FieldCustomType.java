@@ -15,29 +15,41 @@
  */
 package io.github.jleblanc64.hibernate5.hibernate.duplicate;
 
+import lombok.SneakyThrows;
+import org.hibernate.annotations.common.reflection.XProperty;
+import org.hibernate.annotations.common.reflection.java.JavaReflectionManager;
+import org.hibernate.annotations.common.reflection.java.JavaXMember;
+import org.hibernate.annotations.common.reflection.java.generics.TypeEnvironment;
+
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Type;
-import java.util.List;
-
-import static org.mockito.Mockito.mock;
 
+// https://github.com/hibernate/hibernate-commons-annotations/blob/5.1/src/main/java/org/hibernate/annotations/common/reflection/java/JavaXProperty.java#L39
+// same as JavaXProperty.create, with the generic type of the field replaced by type
 public class FieldCustomType {
+    private static final Constructor<?> JAVA_X_PROPERTY_CONSTRUCTOR = javaXPropertyConstructor();
 
-    public static Field create(Field field, Type type) {
-        return mock(Field.class, invocation -> {
-            var args = invocation.getRawArguments();
-            var m = invocation.getMethod();
-            m.setAccessible(true);
-            var name = m.getName();
+    @SneakyThrows
+    public static XProperty create(Field field, Type type, TypeEnvironment env, JavaReflectionManager factory) {
+        var boundType = env.bind(type);
+        return (XProperty) javaXProperty(field, boundType, env, factory, boundType);
+    }
 
-            var result = m.invoke(field, args);
-            if (name.equals("getGenericType"))
-                return type;
-            if (name.equals("getType"))
-                return List.class;
+    @SneakyThrows
+    static JavaXMember javaXProperty(Member member, Type type, TypeEnvironment env, JavaReflectionManager factory, Type xType) {
+        return (JavaXMember) JAVA_X_PROPERTY_CONSTRUCTOR.newInstance(member, type, env, factory, factory.toXType(env, xType));
+    }
 
+    @SneakyThrows
+    private static Constructor<?> javaXPropertyConstructor() {
+        var clazz = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXProperty");
+        var clazzJavaXType = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXType");
 
-            return result;
-        });
+        var constructor = clazz.getDeclaredConstructor(Member.class, Type.class, TypeEnvironment.class,
+                JavaReflectionManager.class, clazzJavaXType);
+        constructor.setAccessible(true);
+        return constructor;
     }
 }
@@ -16,7 +16,6 @@
 package io.github.jleblanc64.hibernate5.hibernate.duplicate;
 
 
-import io.github.jleblanc64.hibernate5.hibernate.Utils;
 import io.github.jleblanc64.hibernate5.meta.MetaColl;
 import io.github.jleblanc64.libcustom.functional.ListF;
 import lombok.SneakyThrows;
@@ -28,10 +27,10 @@ import org.hibernate.annotations.common.reflection.java.generics.TypeEnvironment
 
 import javax.persistence.ElementCollection;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Member;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.List;
 
 import static io.github.jleblanc64.hibernate5.hibernate.Utils.getRefl;
 import static io.github.jleblanc64.hibernate5.hibernate.Utils.isEntity;
@@ -47,20 +46,11 @@ public class JavaXProperty extends JavaXMember implements XProperty {
     private Class collectionClass;
     private XClass elementClass;
 
-    @SneakyThrows
-    public static JavaXProperty of(JavaXMember m, Type type, MetaColl meta) {
-        return of(m, type, f(m.getAnnotations()), meta);
-    }
-
-    @SneakyThrows
-    public static JavaXProperty of(Field f, Type type, JavaXProperty j, MetaColl meta) {
-        return new JavaXProperty(f, type, j.env, j.factory, j.annotations, meta);
-    }
+    private static final Constructor<?> JAVA_X_CLASS_CONSTRUCTOR = javaXClassConstructor();
 
-    @SneakyThrows
-    private static JavaXProperty of(JavaXMember m, Type type, List<Annotation> annotations, MetaColl meta) {
+    public static JavaXProperty of(JavaXMember m, Type type, JavaReflectionManager factory, MetaColl meta) {
         var env = (TypeEnvironment) getRefl(m, "env");
-        return new JavaXProperty(m.getMember(), type, env, new JavaReflectionManager(), f(annotations), meta);
+        return new JavaXProperty(m.getMember(), type, env, factory, f(m.getAnnotations()), meta);
     }
 
     @SneakyThrows
@@ -72,28 +62,37 @@ public class JavaXProperty extends JavaXMember implements XProperty {
         this.factory = factory;
         this.annotations = annotations;
 
-        var clazz = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXProperty");
-        var clazzJavaXType = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXType");
-
-        var constructor = clazz.getDeclaredConstructor(Member.class, Type.class, TypeEnvironment.class,
-                JavaReflectionManager.class, clazzJavaXType);
-        constructor.setAccessible(true);
-        javaXProperty = (JavaXMember) constructor.newInstance(member, type, env, factory, factory.toXType(env, typeOf(member, env)));
+        javaXProperty = FieldCustomType.javaXProperty(member, type, env, factory, typeOf(member, env));
 
         // elementClass
-        var typeS = getRefl(this, "type").toString();
-        if (meta != null && typeS.startsWith(meta.monadClass().getName() + "<")) {
-            var paramClass = Utils.paramClass(typeS);
-            var clazzJavaXClass = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXClass");
-            constructor = clazzJavaXClass.getDeclaredConstructor(Class.class, TypeEnvironment.class, JavaReflectionManager.class);
-            constructor.setAccessible(true);
-
+        var paramClass = paramClass(type, meta);
+        if (paramClass != null) {
             isCollection = isEntity(paramClass.getDeclaredAnnotations()) || isAnnotationPresent(ElementCollection.class);
             collectionClass = meta.monadClass();
-            elementClass = (XClass) constructor.newInstance(paramClass, env, factory);
+            elementClass = (XClass) JAVA_X_CLASS_CONSTRUCTOR.newInstance(paramClass, env, factory);
         }
     }
 
+    private static Class<?> paramClass(Type type, MetaColl meta) {
+        if (meta == null || !(type instanceof ParameterizedType))
+            return null;
+
+        var parameterizedType = (ParameterizedType) type;
+        var typeArgs = parameterizedType.getActualTypeArguments();
+        if (parameterizedType.getRawType() != meta.monadClass() || typeArgs.length != 1 || !(typeArgs[0] instanceof Class))
+            return null;
+
+        return (Class<?>) typeArgs[0];
+    }
+
+    @SneakyThrows
+    private static Constructor<?> javaXClassConstructor() {
+        var clazzJavaXClass = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXClass");
+        var constructor = clazzJavaXClass.getDeclaredConstructor(Class.class, TypeEnvironment.class, JavaReflectionManager.class);
+        constructor.setAccessible(true);
+        return constructor;
+    }
+
     @Override
     public boolean isCollection() {
         return isCollection;
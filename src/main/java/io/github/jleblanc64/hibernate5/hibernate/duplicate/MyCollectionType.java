@@ -19,6 +19,7 @@ import org.hibernate.collection.spi.PersistentCollection;
 import org.hibernate.engine.spi.CollectionEntry;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.internal.util.collections.CollectionHelper;
+import org.hibernate.type.AbstractStandardBasicType;
 import org.hibernate.type.CollectionType;
 import org.hibernate.type.Type;
 
@@ -35,14 +36,16 @@ public class MyCollectionType {
             SharedSessionContractImplementor session,
             CollectionType c) {
 
-        clear(target);
-
-        // copy elements into newly empty target collection
+        // copy elements into the target collection, replacing its content in one write
         Type elemType = c.getElementType(session.getFactory());
+        var keep = replacesToOriginal(elemType);
+        var elements = new ArrayList();
         var iter = iterator(original);
         while (iter.hasNext()) {
-            add(target, elemType.replace(iter.next(), null, session, owner, copyCache));
+            var o = iter.next();
+            elements.add(keep ? o : elemType.replace(o, null, session, owner, copyCache));
         }
+        replaceAll(target, elements);
 
         // if the original is a PersistentCollection, and that original
         // was not flagged as dirty, then reset the target's dirty flag
@@ -67,31 +70,58 @@ public class MyCollectionType {
         return target;
     }
 
-    private static void clear(Object l) {
-        if (l instanceof Collection)
+    // fresh wrapper of a new field value takes the place of the managed collection it replaces, with its key, snapshot and
+    // collection entry, so that the flush writes the row diff; the managed one, which the application may still hold as
+    // a vavr value, is detached unchanged
+    public static void takeOver(PersistentCollection fresh, PersistentCollection managed, SharedSessionContractImplementor session) {
+        var context = session.getPersistenceContextInternal();
+        var entry = context.removeCollectionEntry(managed);
+        var snapshot = managed.getStoredSnapshot();
+
+        fresh.setOwner(managed.getOwner());
+        if (fresh instanceof MyPersistentIdentifierBag)
+            ((MyPersistentIdentifierBag) fresh).takeRowsOf((MyPersistentIdentifierBag) managed);
+
+        // replaces the managed one by key and unsets its session; the entry it creates holds a snapshot of fresh
+        var freshEntry = context.addInitializedCollection(entry.getLoadedPersister(), fresh, entry.getLoadedKey());
+        fresh.setSnapshot(entry.getLoadedKey(), entry.getRole(), snapshot);
+        freshEntry.resetStoredSnapshot(fresh, snapshot);
+        fresh.dirty();
+    }
+
+    // immutable basic values are their own replacement, no need to go through Type.replace element by element
+    private static boolean replacesToOriginal(Type elemType) {
+        return elemType instanceof AbstractStandardBasicType && !elemType.isMutable();
+    }
+
+    public static boolean sameElements(Object l, Collection elements) {
+        // the iteration order of two hash sets with the same elements can differ
+        if (l instanceof MyPersistentSet)
+            return ((MyPersistentSet) l).size() == elements.size() && ((MyPersistentSet) l).containsAll(elements);
+
+        var iter = iterator(l);
+        for (var o : elements)
+            if (!iter.hasNext() || iter.next() != o)
+                return false;
+
+        return !iter.hasNext();
+    }
+
+    private static void replaceAll(Object l, Collection elements) {
+        if (l instanceof MyPersistentCollection)
+            ((MyPersistentCollection) l).replaceAllPriv(elements);
+        else {
             ((Collection) l).clear();
-        else if (l instanceof MyPersistentBag)
-            ((MyPersistentBag) l).clear();
-        else
-            throw new RuntimeException("Not implemented");
+            ((Collection) l).addAll(elements);
+        }
     }
 
+    // java.util collections and plain vavr values are Iterable
     private static Iterator iterator(Object l) {
-        if (l instanceof Collection)
-            return ((Collection) l).iterator();
-        else if (l instanceof MyPersistentBag)
-            return ((MyPersistentBag) l).iteratorPriv();
-        else
-            throw new RuntimeException("Not implemented");
-    }
+        if (l instanceof MyPersistentCollection)
+            return ((MyPersistentCollection) l).iteratorPriv();
 
-    private static void add(Object l, Object o) {
-        if (l instanceof Collection)
-            ((Collection) l).add(o);
-        else if (l instanceof MyPersistentBag)
-            ((MyPersistentBag) l).add(o);
-        else
-            throw new RuntimeException("Not implemented");
+        return ((Iterable) l).iterator();
     }
 
     private static void preserveSnapshot(
@@ -101,6 +131,7 @@ public class MyCollectionType {
             Object owner,
             Map copyCache,
             SharedSessionContractImplementor session) {
+        var keep = replacesToOriginal(elemType);
         Serializable originalSnapshot = original.getStoredSnapshot();
         Serializable resultSnapshot = result.getStoredSnapshot();
         Serializable targetSnapshot;
@@ -109,7 +140,7 @@ public class MyCollectionType {
             targetSnapshot = new ArrayList(
                     ((List) originalSnapshot).size());
             for (Object obj : (List) originalSnapshot) {
-                ((List) targetSnapshot).add(elemType.replace(obj, null, session, owner, copyCache));
+                ((List) targetSnapshot).add(keep ? obj : elemType.replace(obj, null, session, owner, copyCache));
             }
 
         } else if (originalSnapshot instanceof MyPersistentBag) {
@@ -118,7 +149,7 @@ public class MyCollectionType {
             var iter = ((MyPersistentBag) originalSnapshot).iteratorPriv();
             while (iter.hasNext()) {
                 Object obj = iter.next();
-                ((List) targetSnapshot).add(elemType.replace(obj, null, session, owner, copyCache));
+                ((List) targetSnapshot).add(keep ? obj : elemType.replace(obj, null, session, owner, copyCache));
             }
         } else if (originalSnapshot instanceof Map) {
             if (originalSnapshot instanceof SortedMap) {
@@ -137,7 +168,7 @@ public class MyCollectionType {
                         ? null
                         : ((Map<Object, Object>) resultSnapshot).get(key);
 
-                Object newValue = elemType.replace(value, resultSnapshotValue, session, owner, copyCache);
+                Object newValue = keep ? value : elemType.replace(value, resultSnapshotValue, session, owner, copyCache);
 
                 if (key == value) {
                     ((Map) targetSnapshot).put(newValue, newValue);
@@ -151,7 +182,7 @@ public class MyCollectionType {
         } else if (originalSnapshot instanceof Object[]) {
             Object[] arr = (Object[]) originalSnapshot;
             for (int i = 0; i < arr.length; i++) {
-                arr[i] = elemType.replace(arr[i], null, session, owner, copyCache);
+                arr[i] = keep ? arr[i] : elemType.replace(arr[i], null, session, owner, copyCache);
             }
             targetSnapshot = originalSnapshot;
 
@@ -28,13 +28,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
-public class MyPersistentBag extends AbstractPersistentCollection {
+public class MyPersistentBag extends AbstractPersistentCollection implements MyPersistentCollection {
 
     protected List bag;
 
     // The Collection provided to a PersistentBag constructor,
     private Collection providedCollection;
 
+    // shared by getDeletes and needsInserting during a flush
+    private transient ElementCounts counts;
+
     public MyPersistentBag(SharedSessionContractImplementor session, Collection coll) {
         super(session);
 
@@ -91,80 +94,12 @@ public class MyPersistentBag extends AbstractPersistentCollection {
     @Override
     @SuppressWarnings("unchecked")
     public boolean equalsSnapshot(CollectionPersister persister) throws HibernateException {
-        final Type elementType = persister.getElementType();
         final List<Object> sn = (List<Object>) getSnapshot();
         if (sn.size() != bag.size()) {
             return false;
         }
 
-        // HHH-11032 - Group objects by Type.getHashCode() to reduce the complexity of the search
-        final Map<Integer, List<Object>> hashToInstancesBag = groupByEqualityHash(bag, elementType);
-        final Map<Integer, List<Object>> hashToInstancesSn = groupByEqualityHash(sn, elementType);
-        if (hashToInstancesBag.size() != hashToInstancesSn.size()) {
-            return false;
-        }
-
-        // First iterate over the hashToInstancesBag entries to see if the number
-        // of List values is different for any hash value.
-        for (Map.Entry<Integer, List<Object>> hashToInstancesBagEntry : hashToInstancesBag.entrySet()) {
-            final Integer hash = hashToInstancesBagEntry.getKey();
-            final List<Object> instancesBag = hashToInstancesBagEntry.getValue();
-            final List<Object> instancesSn = hashToInstancesSn.get(hash);
-            if (instancesSn == null || (instancesBag.size() != instancesSn.size())) {
-                return false;
-            }
-        }
-
-        // We already know that both hashToInstancesBag and hashToInstancesSn have:
-        // 1) the same hash values;
-        // 2) the same number of values with the same hash value.
-
-        // Now check if the number of occurrences of each element is the same.
-        for (Map.Entry<Integer, List<Object>> hashToInstancesBagEntry : hashToInstancesBag.entrySet()) {
-            final Integer hash = hashToInstancesBagEntry.getKey();
-            final List<Object> instancesBag = hashToInstancesBagEntry.getValue();
-            final List<Object> instancesSn = hashToInstancesSn.get(hash);
-            for (Object instance : instancesBag) {
-                if (!expectOccurrences(
-                        instance,
-                        instancesBag,
-                        elementType,
-                        countOccurrences(instance, instancesSn, elementType)
-                )) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Groups items in searchedBag according to persistence "equality" as defined in Type.isSame and Type.getHashCode
-     *
-     * @return Map of "equality" hashCode to List of objects
-     */
-    private Map<Integer, List<Object>> groupByEqualityHash(List<Object> searchedBag, Type elementType) {
-        if (searchedBag.isEmpty()) {
-            return Collections.emptyMap();
-        }
-        Map<Integer, List<Object>> map = new HashMap<>();
-        for (Object o : searchedBag) {
-            map.computeIfAbsent(nullableHashCode(o, elementType), k -> new ArrayList<>()).add(o);
-        }
-        return map;
-    }
-
-    /**
-     * @param o
-     * @param elementType
-     * @return the default elementType hashcode of the object o, or null if the object is null
-     */
-    private Integer nullableHashCode(Object o, Type elementType) {
-        if (o == null) {
-            return null;
-        } else {
-            return elementType.getHashCode(o);
-        }
+        return new ElementCounts(bag, sn, persister.getElementType(), persister.getFactory()).sameCounts();
     }
 
     @Override
@@ -172,28 +107,6 @@ public class MyPersistentBag extends AbstractPersistentCollection {
         return ((Collection) snapshot).isEmpty();
     }
 
-    private int countOccurrences(Object element, List<Object> list, Type elementType) {
-        int result = 0;
-        for (Object listElement : list) {
-            if (elementType.isSame(element, listElement)) {
-                result++;
-            }
-        }
-        return result;
-    }
-
-    private boolean expectOccurrences(Object element, List<Object> list, Type elementType, int expected) {
-        int result = 0;
-        for (Object listElement : list) {
-            if (elementType.isSame(element, listElement)) {
-                if (result++ > expected) {
-                    return false;
-                }
-            }
-        }
-        return result == expected;
-    }
-
     @Override
     @SuppressWarnings("unchecked")
     public Serializable getSnapshot(CollectionPersister persister)
@@ -214,27 +127,19 @@ public class MyPersistentBag extends AbstractPersistentCollection {
     @Override
     public Serializable disassemble(CollectionPersister persister)
             throws HibernateException {
-        final int length = bag.size();
-        final Serializable[] result = new Serializable[length];
-        for (int i = 0; i < length; i++) {
-            result[i] = persister.getElementType().disassemble(bag.get(i), getSession(), null);
-        }
-        return result;
+        return CacheForm.disassemble(bag, persister, getSession());
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public void initializeFromCache(CollectionPersister persister, Serializable disassembled, Object owner)
             throws HibernateException {
-        final Serializable[] array = (Serializable[]) disassembled;
-        final int size = array.length;
-        beforeInitialize(persister, size);
-        for (Serializable item : array) {
-            final Object element = persister.getElementType().assemble(item, getSession(), owner);
+        beforeInitialize(persister, CacheForm.size(disassembled, persister));
+        CacheForm.assemble(disassembled, persister, getSession(), owner, element -> {
             if (element != null) {
                 bag.add(element);
             }
-        }
+        });
     }
 
     @Override
@@ -254,29 +159,11 @@ public class MyPersistentBag extends AbstractPersistentCollection {
     @Override
     @SuppressWarnings("unchecked")
     public Iterator getDeletes(CollectionPersister persister, boolean indexIsFormula) throws HibernateException {
-        final Type elementType = persister.getElementType();
         final ArrayList deletes = new ArrayList();
         final List sn = (List) getSnapshot();
-        final Iterator olditer = sn.iterator();
-        int i = 0;
-        while (olditer.hasNext()) {
-            final Object old = olditer.next();
-            final Iterator newiter = bag.iterator();
-            boolean found = false;
-            if (bag.size() > i && elementType.isSame(old, bag.get(i++))) {
-                //a shortcut if its location didn't change!
-                found = true;
-            } else {
-                //search for it
-                //note that this code is incorrect for other than one-to-many
-                while (newiter.hasNext()) {
-                    if (elementType.isSame(old, newiter.next())) {
-                        found = true;
-                        break;
-                    }
-                }
-            }
-            if (!found) {
+        counts = new ElementCounts(bag, sn, persister.getElementType(), persister.getFactory());
+        for (Object old : sn) {
+            if (counts.inBag(old) == 0) {
                 deletes.add(old);
             }
         }
@@ -289,16 +176,19 @@ public class MyPersistentBag extends AbstractPersistentCollection {
         if (sn.size() > i && elemType.isSame(sn.get(i), entry)) {
             //a shortcut if its location didn't change!
             return false;
-        } else {
-            //search for it
-            //note that this code is incorrect for other than one-to-many
-            for (Object old : sn) {
-                if (elemType.isSame(old, entry)) {
-                    return false;
-                }
-            }
-            return true;
         }
+        // counted once per flush, by getDeletes when it ran first
+        if (counts == null || counts.snapshot != sn || counts.bag != bag) {
+            counts = new ElementCounts(bag, sn, elemType, getSession().getFactory());
+        }
+        return counts.inSnapshot(entry) == 0;
+    }
+
+    // a new snapshot is set at the end of each flush
+    @Override
+    public void setSnapshot(Serializable key, String role, Serializable snapshot) {
+        counts = null;
+        super.setSnapshot(key, role, snapshot);
     }
 
     @Override
@@ -423,6 +313,13 @@ public class MyPersistentBag extends AbstractPersistentCollection {
         }
     }
 
+    // clear() then add() of each element in a single write, the new list is sized for the elements
+    @SuppressWarnings("unchecked")
+    public void replaceAllPriv(Collection values) {
+        write();
+        bag = new ArrayList(values);
+    }
+
     @Override
     public Object getIndex(Object entry, int i, CollectionPersister persister) {
         throw new UnsupportedOperationException("Bags don't have indexes");
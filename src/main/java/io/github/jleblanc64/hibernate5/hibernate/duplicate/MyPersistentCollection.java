@@ -0,0 +1,28 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+// persistent collections of this package: they are not java.util collections, the vavr interfaces of their subclasses
+// take the plain names, so the java.util-like methods Hibernate needs here are suffixed Priv
+public interface MyPersistentCollection {
+    Iterator iteratorPriv();
+
+    // clear() then add() of each element in a single write
+    void replaceAllPriv(Collection values);
+}
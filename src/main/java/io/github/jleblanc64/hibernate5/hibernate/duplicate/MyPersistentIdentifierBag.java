@@ -0,0 +1,508 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.HibernateException;
+import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.loader.CollectionAliases;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+public class MyPersistentIdentifierBag extends AbstractPersistentCollection implements MyPersistentCollection {
+    protected List<Object> values;
+    protected Map<Integer, Object> identifiers;
+
+    public MyPersistentIdentifierBag(SharedSessionContractImplementor session, Collection coll) {
+        super(session);
+
+        if (coll != null) {
+            if (coll instanceof List) {
+                values = (List<Object>) coll;
+            } else {
+                values = new ArrayList<>(coll);
+            }
+            setInitialized();
+            setDirectlyAccessible(true);
+            identifiers = new HashMap<>();
+        }
+    }
+
+    @Override
+    public void initializeFromCache(CollectionPersister persister, Serializable disassembled, Object owner)
+            throws HibernateException {
+        final Serializable[] array = (Serializable[]) disassembled;
+        final int size = array.length;
+        beforeInitialize(persister, size);
+        for (int i = 0; i < size; i += 2) {
+            identifiers.put(
+                    (i / 2),
+                    persister.getIdentifierType().assemble(array[i], getSession(), owner)
+            );
+            values.add(persister.getElementType().assemble(array[i + 1], getSession(), owner));
+        }
+    }
+
+    @Override
+    public Object getIdentifier(Object entry, int i) {
+        return identifiers.get(i);
+    }
+
+    @Override
+    public boolean isWrapper(Object collection) {
+        return values == collection;
+    }
+
+    public boolean add(Object o) {
+        write();
+        values.add(o);
+        return true;
+    }
+
+    public void clear() {
+        initialize(true);
+        if (!values.isEmpty() || !identifiers.isEmpty()) {
+            values.clear();
+            identifiers.clear();
+            dirty();
+        }
+    }
+
+    // clear() then add() of each element in a single write; an element still in the bag keeps the identifier
+    // of one of its rows, so that only the rows of removed or added elements are written
+    public void replaceAllPriv(Collection c) {
+        write();
+        var previous = values;
+        values = new ArrayList<>(c);
+        identifiers = rowIdentifiers(values, previous, identifiers, elementPersister());
+    }
+
+    // this bag replaces previous for the same rows: an element already there keeps its row identifier
+    public void takeRowsOf(MyPersistentIdentifierBag previous) {
+        identifiers = rowIdentifiers(values, previous.values, previous.identifiers, previous.elementPersister());
+    }
+
+    private static Map<Integer, Object> rowIdentifiers(List values, List previous, Map<Integer, Object> previousIdentifiers,
+                                                       EntityPersister elementPersister) {
+        var rows = new HashMap<Object, Deque<Object>>();
+        for (int i = 0; i < previous.size(); i++)
+            rows.computeIfAbsent(rowKey(previous.get(i), elementPersister), k -> new ArrayDeque<>()).add(previousIdentifiers.get(i));
+
+        var identifiers = new HashMap<Integer, Object>();
+        for (int i = 0; i < values.size(); i++) {
+            var ids = rows.get(rowKey(values.get(i), elementPersister));
+            var id = ids == null ? null : ids.poll();
+            if (id != null)
+                identifiers.put(i, id);
+        }
+
+        return identifiers;
+    }
+
+    // entities by identifier, as in ElementCounts: their hashCode / equals may load lazy state; unsaved ones by reference
+    private static Object rowKey(Object o, EntityPersister elementPersister) {
+        if (o == null || elementPersister == null)
+            return o;
+
+        var id = o instanceof HibernateProxy ? ((HibernateProxy) o).getHibernateLazyInitializer().getInternalIdentifier()
+                : elementPersister.getIdentifier(o, (SharedSessionContractImplementor) null);
+        return id == null ? new Unsaved(o) : id;
+    }
+
+    @AllArgsConstructor
+    private static class Unsaved {
+        private final Object entity;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Unsaved && ((Unsaved) o).entity == entity;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(entity);
+        }
+    }
+
+    // persister of the entity elements, null for other elements or a bag without role yet
+    private EntityPersister elementPersister() {
+        if (getRole() == null || getSession() == null)
+            return null;
+
+        var factory = getSession().getFactory();
+        var type = factory.getMetamodel().collectionPersister(getRole()).getElementType();
+        var persister = type.isEntityType() ? ((EntityType) type).getAssociatedJoinable(factory) : null;
+        return persister instanceof EntityPersister && ((EntityPersister) persister).canExtractIdOutOfEntity()
+                ? (EntityPersister) persister : null;
+    }
+
+    // extra-lazy like the other collections, PersistentIdentifierBag always reads here
+    public boolean contains(Object o) {
+        final Boolean exists = readElementExistence(o);
+        return exists == null ? values.contains(o) : exists;
+    }
+
+    public boolean containsAll(Collection c) {
+        read();
+        return values.containsAll(c);
+    }
+
+    public boolean isEmpty() {
+        return readSize() ? getCachedSize() == 0 : values.isEmpty();
+    }
+
+    public Iterator iteratorPriv() {
+        read();
+        return new IteratorProxy(values.iterator());
+    }
+
+    public boolean removePriv(Object o) {
+        initialize(true);
+        final int index = values.indexOf(o);
+        if (index >= 0) {
+            beforeRemove(index);
+            values.remove(index);
+            elementRemoved = true;
+            dirty();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public boolean removeAll(Collection c) {
+        if (c.size() > 0) {
+            boolean result = false;
+            for (Object element : c) {
+                if (removePriv(element)) {
+                    result = true;
+                }
+            }
+            return result;
+        } else {
+            return false;
+        }
+    }
+
+    public boolean retainAll(Collection c) {
+        initialize(true);
+        if (values.retainAll(c)) {
+            dirty();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public int size() {
+        return readSize() ? getCachedSize() : values.size();
+    }
+
+    public Object[] toArrayPriv() {
+        read();
+        return values.toArray();
+    }
+
+    public Object[] toArray(Object[] a) {
+        read();
+        return values.toArray(a);
+    }
+
+    @Override
+    public void beforeInitialize(CollectionPersister persister, int anticipatedSize) {
+        identifiers = anticipatedSize <= 0
+                ? new HashMap<>()
+                : new HashMap<>(anticipatedSize + 1 + (int) (anticipatedSize * .75f), .75f);
+        values = anticipatedSize <= 0
+                ? new ArrayList<>()
+                : new ArrayList<>(anticipatedSize);
+    }
+
+    @Override
+    public Serializable disassemble(CollectionPersister persister) throws HibernateException {
+        final Serializable[] result = new Serializable[values.size() * 2];
+        int i = 0;
+        for (int j = 0; j < values.size(); j++) {
+            final Object value = values.get(j);
+            result[i++] = persister.getIdentifierType().disassemble(identifiers.get(j), getSession(), null);
+            result[i++] = persister.getElementType().disassemble(value, getSession(), null);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean empty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public Iterator entries(CollectionPersister persister) {
+        return values.iterator();
+    }
+
+    @Override
+    public boolean entryExists(Object entry, int i) {
+        return entry != null;
+    }
+
+    @Override
+    public boolean equalsSnapshot(CollectionPersister persister) throws HibernateException {
+        final Type elementType = persister.getElementType();
+        final Map snap = (Map) getSnapshot();
+        if (snap.size() != values.size()) {
+            return false;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            final Object value = values.get(i);
+            final Object id = identifiers.get(i);
+            if (id == null) {
+                return false;
+            }
+            final Object old = snap.get(id);
+            if (elementType.isDirty(old, value, getSession())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isSnapshotEmpty(Serializable snapshot) {
+        return ((Map) snapshot).isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator getDeletes(CollectionPersister persister, boolean indexIsFormula) throws HibernateException {
+        final Map snap = (Map) getSnapshot();
+        final List deletes = new ArrayList(snap.keySet());
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) != null) {
+                deletes.remove(identifiers.get(i));
+            }
+        }
+        return deletes.iterator();
+    }
+
+    @Override
+    public Object getIndex(Object entry, int i, CollectionPersister persister) {
+        throw new UnsupportedOperationException("Bags don't have indexes");
+    }
+
+    @Override
+    public Object getElement(Object entry) {
+        return entry;
+    }
+
+    @Override
+    public Object getSnapshotElement(Object entry, int i) {
+        final Map snap = (Map) getSnapshot();
+        final Object id = identifiers.get(i);
+        return snap.get(id);
+    }
+
+    @Override
+    public boolean needsInserting(Object entry, int i, Type elemType)
+            throws HibernateException {
+        final Map snap = (Map) getSnapshot();
+        final Object id = identifiers.get(i);
+        return entry != null
+                && (id == null || snap.get(id) == null);
+    }
+
+    @Override
+    public boolean needsUpdating(Object entry, int i, Type elemType) throws HibernateException {
+        if (entry == null) {
+            return false;
+        }
+
+        final Map snap = (Map) getSnapshot();
+        final Object id = identifiers.get(i);
+        if (id == null) {
+            return false;
+        }
+
+        final Object old = snap.get(id);
+        return old != null && elemType.isDirty(old, entry, getSession());
+    }
+
+    @Override
+    public Object readFrom(
+            ResultSet rs,
+            CollectionPersister persister,
+            CollectionAliases descriptor,
+            Object owner) throws HibernateException, SQLException {
+        final Object element = persister.readElement(rs, owner, descriptor.getSuffixedElementAliases(), getSession());
+        final Object old = identifiers.put(
+                values.size(),
+                persister.readIdentifier(rs, descriptor.getSuffixedIdentifierAlias(), getSession())
+        );
+
+        if (old == null) {
+            //maintain correct duplication if loaded in a cartesian product
+            values.add(element);
+        }
+        return element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Serializable getSnapshot(CollectionPersister persister) throws HibernateException {
+        final HashMap map = new HashMap(values.size());
+        final Iterator iter = values.iterator();
+        int i = 0;
+        while (iter.hasNext()) {
+            final Object value = iter.next();
+            map.put(
+                    identifiers.get(i++),
+                    persister.getElementType().deepCopy(value, persister.getFactory())
+            );
+        }
+        return map;
+    }
+
+    @Override
+    public Collection getOrphans(Serializable snapshot, String entityName) throws HibernateException {
+        final Map sn = (Map) snapshot;
+        return getOrphans(sn.values(), values, entityName, getSession());
+    }
+
+    @Override
+    public void preInsert(CollectionPersister persister) throws HibernateException {
+        final Iterator itr = values.iterator();
+        int i = 0;
+        while (itr.hasNext()) {
+            final Object entry = itr.next();
+            final Integer loc = i++;
+            if (!identifiers.containsKey(loc)) {
+                //TODO: native ids
+                final Serializable id = persister.getIdentifierGenerator().generate(getSession(), entry);
+                identifiers.put(loc, id);
+            }
+        }
+    }
+
+    public void add(int index, Object element) {
+        write();
+        beforeAdd(index);
+        values.add(index, element);
+    }
+
+    public boolean addAll(int index, Collection c) {
+        if (c.size() > 0) {
+            for (Object element : c) {
+                add(index++, element);
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public Object get(int index) {
+        read();
+        return values.get(index);
+    }
+
+    public int indexOf(Object o) {
+        read();
+        return values.indexOf(o);
+    }
+
+    public int lastIndexOf(Object o) {
+        read();
+        return values.lastIndexOf(o);
+    }
+
+    public ListIterator listIterator() {
+        read();
+        return new ListIteratorProxy(values.listIterator());
+    }
+
+    public ListIterator listIterator(int index) {
+        read();
+        return new ListIteratorProxy(values.listIterator(index));
+    }
+
+    private void beforeRemove(int index) {
+        final Object removedId = identifiers.get(index);
+        final int last = values.size() - 1;
+        for (int i = index; i < last; i++) {
+            final Object id = identifiers.get(i + 1);
+            if (id == null) {
+                identifiers.remove(i);
+            } else {
+                identifiers.put(i, id);
+            }
+        }
+        identifiers.put(last, removedId);
+    }
+
+    private void beforeAdd(int index) {
+        for (int i = index; i < values.size(); i++) {
+            identifiers.put(i + 1, identifiers.get(i));
+        }
+        identifiers.remove(index);
+    }
+
+    public Object remove(int index) {
+        write();
+        beforeRemove(index);
+        return values.remove(index);
+    }
+
+    public Object set(int index, Object element) {
+        write();
+        return values.set(index, element);
+    }
+
+    public List subList(int fromIndex, int toIndex) {
+        read();
+        return new ListProxy(values.subList(fromIndex, toIndex));
+    }
+
+    public boolean addAll(Collection c) {
+        if (c.size() > 0) {
+            write();
+            return values.addAll(c);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public void afterRowInsert(
+            CollectionPersister persister,
+            Object entry,
+            int i) throws HibernateException {
+        //TODO: if we are using identity columns, fetch the identifier
+    }
+
+    @Override
+    public String toString() {
+        read();
+        return values.toString();
+    }
+}
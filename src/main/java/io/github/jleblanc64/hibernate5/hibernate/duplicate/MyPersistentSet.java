@@ -28,7 +28,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
-public class MyPersistentSet extends AbstractPersistentCollection {
+public class MyPersistentSet extends AbstractPersistentCollection implements MyPersistentCollection {
     protected Set set;
     protected transient List tempList;
 
@@ -90,15 +90,12 @@ public class MyPersistentSet extends AbstractPersistentCollection {
     @SuppressWarnings("unchecked")
     public void initializeFromCache(CollectionPersister persister, Serializable disassembled, Object owner)
             throws HibernateException {
-        final Serializable[] array = (Serializable[]) disassembled;
-        final int size = array.length;
-        beforeInitialize(persister, size);
-        for (Serializable arrayElement : array) {
-            final Object assembledArrayElement = persister.getElementType().assemble(arrayElement, getSession(), owner);
-            if (assembledArrayElement != null) {
-                set.add(assembledArrayElement);
+        beforeInitialize(persister, CacheForm.size(disassembled, persister));
+        CacheForm.assemble(disassembled, persister, getSession(), owner, element -> {
+            if (element != null) {
+                set.add(element);
             }
-        }
+        });
     }
 
     @Override
@@ -176,6 +173,30 @@ public class MyPersistentSet extends AbstractPersistentCollection {
         }
     }
 
+    // remove + add as a single write, queued like removePriv when the existence of the current element is known without initializing
+    @SuppressWarnings("unchecked")
+    public boolean replacePriv(Object current, Object replacement) {
+        final Boolean exists = isPutQueueEnabled() ? readElementExistence(current) : null;
+        if (exists == null) {
+            initialize(true);
+            if (set.remove(current)) {
+                set.add(replacement);
+                elementRemoved = true;
+                dirty();
+                return true;
+            } else {
+                return false;
+            }
+        } else if (exists) {
+            elementRemoved = true;
+            queueOperation(new SimpleRemove(current));
+            queueOperation(new SimpleAdd(replacement));
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public boolean containsAll(Collection coll) {
         read();
@@ -236,6 +257,13 @@ public class MyPersistentSet extends AbstractPersistentCollection {
         }
     }
 
+    // clear() then addPriv() of each element in a single write, the new set is sized for the elements
+    @SuppressWarnings("unchecked")
+    public void replaceAllPriv(Collection values) {
+        write();
+        set = Sets.newHashSet(values);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public String toString() {
@@ -282,13 +310,7 @@ public class MyPersistentSet extends AbstractPersistentCollection {
     @Override
     @SuppressWarnings("unchecked")
     public Serializable disassemble(CollectionPersister persister) throws HibernateException {
-        final Serializable[] result = new Serializable[set.size()];
-        final Iterator itr = set.iterator();
-        int i = 0;
-        while (itr.hasNext()) {
-            result[i++] = persister.getElementType().disassemble(itr.next(), getSession(), null);
-        }
-        return result;
+        return CacheForm.disassemble(set, persister, getSession());
     }
 
     @Override
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.vavr.control.Option;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.proxy.HibernateProxy;
+
+import javax.persistence.EntityManagerFactory;
+
+public class EntityIds {
+    // identifier of the entity in an Option, null for None; an uninitialized proxy stays uninitialized
+    public static Object idOrNull(Option<?> option, EntityManagerFactory factory) {
+        if (option.isEmpty())
+            return null;
+
+        var entity = option.get();
+        if (entity instanceof HibernateProxy)
+            return ((HibernateProxy) entity).getHibernateLazyInitializer().getInternalIdentifier();
+
+        var persister = factory.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(entity.getClass());
+        return persister.getIdentifier(entity, (SharedSessionContractImplementor) null);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.vavr.collection.Iterator;
+import io.vavr.collection.List;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// vavr List surface implemented over the backing java.util.List of a persistent bag, the vavr defaults recurse on tail() and would copy the bag at each step
+interface JavaBackedList extends List {
+    // backing list, read from the database first if needed; public through the implementations, so read-only
+    java.util.List readList();
+
+    @Override
+    default Iterator iterator() {
+        var bag = readList();
+        return Iterator.ofAll(bag.iterator());
+    }
+
+    @Override
+    default Iterator reverseIterator() {
+        var bag = readList();
+        var it = bag.listIterator(bag.size());
+        return Iterator.ofAll(new java.util.Iterator() {
+            @Override
+            public boolean hasNext() {
+                return it.hasPrevious();
+            }
+
+            @Override
+            public Object next() {
+                return it.previous();
+            }
+        });
+    }
+
+    @Override
+    default Object head() {
+        // bags have no index column to fetch a single row by, so read once rather than count first
+        var bag = readList();
+        if (bag.isEmpty())
+            throw new NoSuchElementException("head of empty list");
+
+        return bag.get(0);
+    }
+
+    @Override
+    default Object last() {
+        var bag = readList();
+        if (bag.isEmpty())
+            throw new NoSuchElementException("last of empty list");
+
+        return get(bag.size() - 1);
+    }
+
+    @Override
+    default List tail() {
+        var bag = readList();
+        if (bag.isEmpty())
+            throw new UnsupportedOperationException("tail of empty list");
+
+        return slice(1, bag.size());
+    }
+
+    @Override
+    default List init() {
+        var bag = readList();
+        if (bag.isEmpty())
+            throw new UnsupportedOperationException("init of empty list");
+
+        return slice(0, bag.size() - 1);
+    }
+
+    @Override
+    default Object apply(Object o) {
+        return get((Integer) o);
+    }
+
+    @Override
+    default boolean isDefinedAt(Object value) {
+        var i = (Integer) value;
+        return 0 <= i && i < size();
+    }
+
+    @Override
+    default int indexOf(Object element, int from) {
+        var bag = readList();
+        for (int i = Math.max(from, 0); i < bag.size(); i++)
+            if (Objects.equals(element, bag.get(i)))
+                return i;
+
+        return -1;
+    }
+
+    @Override
+    default int lastIndexOf(Object element, int end) {
+        var bag = readList();
+        for (int i = Math.min(end, bag.size() - 1); i >= 0; i--)
+            if (Objects.equals(element, bag.get(i)))
+                return i;
+
+        return -1;
+    }
+
+    @Override
+    default List take(int n) {
+        return slice(0, n);
+    }
+
+    @Override
+    default List drop(int n) {
+        return slice(Math.max(n, 0), size());
+    }
+
+    @Override
+    default List takeRight(int n) {
+        var size = size();
+        return slice(size - Math.max(n, 0), size);
+    }
+
+    @Override
+    default List dropRight(int n) {
+        return slice(0, size() - Math.max(n, 0));
+    }
+
+    @Override
+    default List takeWhile(Predicate predicate) {
+        return take(segmentLength(predicate, 0));
+    }
+
+    @Override
+    default List dropWhile(Predicate predicate) {
+        return drop(segmentLength(predicate, 0));
+    }
+
+    @Override
+    default int segmentLength(Predicate predicate, int from) {
+        var bag = readList();
+        var i = Math.max(from, 0);
+        while (i < bag.size() && predicate.test(bag.get(i)))
+            i++;
+
+        return i - Math.max(from, 0);
+    }
+
+    @Override
+    default List subSequence(int beginIndex) {
+        if (beginIndex < 0 || beginIndex > size())
+            throw new IndexOutOfBoundsException("subSequence(" + beginIndex + ")");
+
+        return drop(beginIndex);
+    }
+
+    @Override
+    default List subSequence(int beginIndex, int endIndex) {
+        var bag = readList();
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > bag.size())
+            throw new IndexOutOfBoundsException("subSequence(" + beginIndex + ", " + endIndex + ") on List of length " + bag.size());
+
+        return slice(beginIndex, endIndex);
+    }
+
+    // every sub-list goes through here: a ListView over a copy of the elements, never this wrapper, whose backing list
+    // Hibernate still writes to
+    @Override
+    default List slice(int beginIndex, int endIndex) {
+        var bag = readList();
+        var from = Math.max(beginIndex, 0);
+        var to = Math.min(endIndex, bag.size());
+        return from >= to ? List.empty() : new ListView(bag.subList(from, to).toArray(), 0, to - from);
+    }
+
+    @Override
+    default List update(int index, Object element) {
+        var bag = readList();
+        if (index < 0 || index >= bag.size())
+            throw new IndexOutOfBoundsException("update(" + index + ")");
+
+        return range(0, index, range(index + 1, bag.size(), List.empty()).prepend(element));
+    }
+
+    @Override
+    default List insert(int index, Object element) {
+        var bag = readList();
+        if (index < 0 || index > bag.size())
+            throw new IndexOutOfBoundsException("insert(" + index + ", e) on List of length " + bag.size());
+
+        return range(0, index, range(index, bag.size(), List.empty()).prepend(element));
+    }
+
+    @Override
+    default List removeAt(int index) {
+        var bag = readList();
+        if (index < 0 || index >= bag.size())
+            throw new IndexOutOfBoundsException("removeAt(" + index + ")");
+
+        return range(0, index, range(index + 1, bag.size(), List.empty()));
+    }
+
+    @Override
+    default List append(Object element) {
+        return range(0, size(), List.of(element));
+    }
+
+    @Override
+    default List appendAll(Iterable elements) {
+        return range(0, size(), List.ofAll(elements));
+    }
+
+    @Override
+    default List prepend(Object element) {
+        return range(0, size(), List.empty()).prepend(element);
+    }
+
+    @Override
+    default List prependAll(Iterable elements) {
+        return List.ofAll(elements).appendAll(range(0, size(), List.empty()));
+    }
+
+    @Override
+    default List reverse() {
+        var bag = readList();
+        List res = List.empty();
+        for (var x : bag)
+            res = res.prepend(x);
+
+        return res;
+    }
+
+    @Override
+    default List map(Function mapper) {
+        var bag = readList();
+        var mapped = new Object[bag.size()];
+        for (int i = 0; i < mapped.length; i++)
+            mapped[i] = mapper.apply(bag.get(i));
+
+        return List.ofAll(Arrays.asList(mapped));
+    }
+
+    @Override
+    default List filter(Predicate predicate) {
+        var bag = readList();
+        var kept = new BitSet(bag.size());
+        for (int i = 0; i < bag.size(); i++)
+            if (predicate.test(bag.get(i)))
+                kept.set(i);
+
+        if (kept.cardinality() == bag.size())
+            return slice(0, bag.size());
+
+        List res = List.empty();
+        for (int i = kept.previousSetBit(bag.size() - 1); i >= 0; i = kept.previousSetBit(i - 1))
+            res = res.prepend(bag.get(i));
+
+        return res;
+    }
+
+    @Override
+    default List reject(Predicate predicate) {
+        return filter(predicate.negate());
+    }
+
+    @Override
+    default Object foldLeft(Object zero, BiFunction f) {
+        var bag = readList();
+        var acc = zero;
+        for (var x : bag)
+            acc = f.apply(acc, x);
+
+        return acc;
+    }
+
+    @Override
+    default Object foldRight(Object zero, BiFunction f) {
+        var bag = readList();
+        var acc = zero;
+        for (var it = bag.listIterator(bag.size()); it.hasPrevious(); )
+            acc = f.apply(it.previous(), acc);
+
+        return acc;
+    }
+
+    // bag[from, to) in front of tail, built back to front so that the result is the only allocation
+    private List range(int from, int to, List tail) {
+        var bag = readList();
+        var res = tail;
+        for (var it = bag.listIterator(to); it.previousIndex() >= from; )
+            res = res.prepend(it.previous());
+
+        return res;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.vavr.control.Option;
+
+import java.util.function.Supplier;
+
+// Option whose value is loaded on the first isEmpty() / get(), then behaves as Option.of(value);
+// it is neither a Some nor a None: Some.equals and the $Some / $None patterns only match the plain Option
+// LazyOneToOneType puts back in the field once loaded, which is why it needs the explicit @LazyToOne(NO_PROXY)
+public class LazyOption implements Option<Object> {
+    private transient Supplier<Object> value;
+    private Option<Object> resolved;
+
+    public LazyOption(Supplier<Object> value) {
+        this.value = value;
+    }
+
+    public boolean isResolved() {
+        return resolved != null;
+    }
+
+    private Option<Object> resolved() {
+        if (resolved == null) {
+            resolved = Option.of(value.get());
+            value = null;
+        }
+
+        return resolved;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return resolved().isEmpty();
+    }
+
+    @Override
+    public Object get() {
+        return resolved().get();
+    }
+
+    @Override
+    public String stringPrefix() {
+        return "Option";
+    }
+
+    // only equal to a LazyOption with an equal value, as Some.equals(this) is false; compare the plain Option the field
+    // holds once loaded, or getOrNull()
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof LazyOption && resolved().equals(((LazyOption) o).resolved());
+    }
+
+    @Override
+    public int hashCode() {
+        return resolved().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return resolved().toString();
+    }
+
+    // serialized as the plain Some / None
+    private Object writeReplace() {
+        return resolved();
+    }
+}
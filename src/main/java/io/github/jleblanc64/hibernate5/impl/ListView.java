@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.vavr.collection.List;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+
+// immutable vavr List over [from, to) of an array: the elements of a persistent bag are copied once, then tail and the
+// other sub-lists are new offsets over the same array, so that the vavr defaults recursing on tail() stay linear
+final class ListView implements JavaBackedList {
+    private final Object[] elements;
+    private final int from;
+    private final int to;
+    private final java.util.List list;
+
+    ListView(Object[] elements, int from, int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        list = Collections.unmodifiableList(Arrays.asList(elements).subList(from, to));
+    }
+
+    @Override
+    public java.util.List readList() {
+        return list;
+    }
+
+    @Override
+    public List slice(int beginIndex, int endIndex) {
+        var begin = Math.max(beginIndex, 0);
+        var end = Math.min(endIndex, length());
+        return begin >= end ? List.empty() : new ListView(elements, from + begin, from + end);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public int length() {
+        return to - from;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof List) || ((List) o).length() != length())
+            return false;
+
+        var it = ((List) o).iterator();
+        for (int i = from; i < to; i++)
+            if (!Objects.equals(elements[i], it.next()))
+                return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return list.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return mkString(stringPrefix() + "(", ", ", ")");
+    }
+}
@@ -41,4 +41,9 @@ public class MetaListImpl implements MetaList<List> {
     public BagProvider<? extends List> bag() {
         return (BagProvider<PersistentBagImpl>) PersistentBagImpl::new;
     }
+
+    @Override
+    public BagProvider<? extends List> idBag() {
+        return (BagProvider<PersistentIdBagImpl>) PersistentIdBagImpl::new;
+    }
 }
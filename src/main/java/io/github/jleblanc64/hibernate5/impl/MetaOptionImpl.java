@@ -18,6 +18,8 @@ package io.github.jleblanc64.hibernate5.impl;
 import io.github.jleblanc64.hibernate5.meta.MetaOption;
 import io.vavr.control.Option;
 
+import java.util.function.Supplier;
+
 public class MetaOptionImpl implements MetaOption<Option> {
     @Override
     public Class<Option> monadClass() {
@@ -29,6 +31,16 @@ public class MetaOptionImpl implements MetaOption<Option> {
         return Option.of(v);
     }
 
+    @Override
+    public Option<?> lazy(Supplier<Object> value) {
+        return new LazyOption(value);
+    }
+
+    @Override
+    public boolean isResolved(Object o) {
+        return !(o instanceof LazyOption) || ((LazyOption) o).isResolved();
+    }
+
     @Override
     public Object getOrNull(Object o) {
         if (o == null)
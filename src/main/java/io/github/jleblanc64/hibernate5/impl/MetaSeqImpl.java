@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.meta.BagProvider;
+import io.github.jleblanc64.hibernate5.meta.MetaSeq;
+import io.vavr.collection.IndexedSeq;
+import io.vavr.collection.Vector;
+
+import java.util.Collection;
+
+public class MetaSeqImpl implements MetaSeq<IndexedSeq> {
+    @Override
+    public Class<IndexedSeq> monadClass() {
+        return IndexedSeq.class;
+    }
+
+    @Override
+    public IndexedSeq fromJava(Collection l) {
+        return Vector.ofAll(l);
+    }
+
+    // mutable, the persistent list writes through it
+    @Override
+    public java.util.List toJava(IndexedSeq l) {
+        return l.asJavaMutable();
+    }
+
+    @Override
+    public BagProvider<? extends IndexedSeq> bag() {
+        return (BagProvider<PersistentSeqImpl>) PersistentSeqImpl::new;
+    }
+}
@@ -16,39 +16,44 @@
 package io.github.jleblanc64.hibernate5.impl;
 
 import io.github.jleblanc64.hibernate5.hibernate.duplicate.MyPersistentBag;
-import io.vavr.PartialFunction;
 import io.vavr.collection.List;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
 
+import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 
-public class PersistentBagImpl extends MyPersistentBag implements io.vavr.collection.List {
+public class PersistentBagImpl extends MyPersistentBag implements JavaBackedList {
     public PersistentBagImpl(SharedSessionContractImplementor session, Collection coll) {
         super(session, coll);
     }
 
     @Override
-    public Object head() {
-        return get(0);
+    public boolean equalsSnapshot(CollectionPersister persister) {
+        return SnapshotCheck.unchanged(this, persister) || super.equalsSnapshot(persister);
     }
 
     @Override
-    public int length() {
-        return size();
+    public boolean afterInitialize() {
+        var done = super.afterInitialize();
+        ReadOnlyLoad.materialize(this, () -> List.ofAll(bag));
+        return done;
     }
 
     @Override
-    public List tail() {
-        return List.ofAll(bag).tail();
+    public Serializable getSnapshot(CollectionPersister persister) {
+        return ReadOnlyLoad.isPlain(this, persister) ? null : super.getSnapshot(persister);
     }
 
     @Override
-    public Object apply(Object o) {
-        return ((PartialFunction) List.ofAll(bag)).apply(o);
+    public java.util.List readList() {
+        read();
+        return Collections.unmodifiableList(bag);
     }
 
     @Override
-    public boolean isDefinedAt(Object value) {
-        return ((PartialFunction) List.ofAll(bag)).isDefinedAt(value);
+    public int length() {
+        return size();
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.hibernate.duplicate.MyPersistentIdentifierBag;
+import io.vavr.collection.List;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+
+public class PersistentIdBagImpl extends MyPersistentIdentifierBag implements JavaBackedList {
+    public PersistentIdBagImpl(SharedSessionContractImplementor session, Collection coll) {
+        super(session, coll);
+    }
+
+    @Override
+    public boolean equalsSnapshot(CollectionPersister persister) {
+        return SnapshotCheck.unchanged(this, persister) || super.equalsSnapshot(persister);
+    }
+
+    @Override
+    public boolean afterInitialize() {
+        var done = super.afterInitialize();
+        ReadOnlyLoad.materialize(this, () -> List.ofAll(values));
+        return done;
+    }
+
+    @Override
+    public Serializable getSnapshot(CollectionPersister persister) {
+        return ReadOnlyLoad.isPlain(this, persister) ? null : super.getSnapshot(persister);
+    }
+
+    @Override
+    public java.util.List readList() {
+        read();
+        return Collections.unmodifiableList(values);
+    }
+
+    @Override
+    public int length() {
+        return size();
+    }
+}
@@ -0,0 +1,656 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.hibernate.duplicate.MyPersistentList;
+import io.vavr.PartialFunction;
+import io.vavr.Tuple2;
+import io.vavr.Tuple3;
+import io.vavr.collection.*;
+import io.vavr.control.Option;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.*;
+
+public class PersistentSeqImpl extends MyPersistentList implements IndexedSeq {
+    // immutable copy shared by the read-only vavr methods, dropped by the writes below or when the backing list is replaced
+    private transient Vector view;
+    private transient java.util.List viewOf;
+
+    public PersistentSeqImpl(SharedSessionContractImplementor session, Collection coll) {
+        super(session, coll);
+    }
+
+    @Override
+    public boolean equalsSnapshot(CollectionPersister persister) {
+        return SnapshotCheck.unchanged(this, persister) || super.equalsSnapshot(persister);
+    }
+
+    @Override
+    public boolean afterInitialize() {
+        var done = super.afterInitialize();
+        ReadOnlyLoad.materialize(this, () -> Vector.ofAll(list));
+        return done;
+    }
+
+    @Override
+    public Serializable getSnapshot(CollectionPersister persister) {
+        return ReadOnlyLoad.isPlain(this, persister) ? null : super.getSnapshot(persister);
+    }
+
+    Vector v() {
+        read();
+        if (view == null || viewOf != list) {
+            view = Vector.ofAll(list);
+            viewOf = list;
+        }
+
+        return view;
+    }
+
+    @Override
+    public Iterator iterator() {
+        read();
+        return Iterator.ofAll(list.iterator());
+    }
+
+    @Override
+    public Object head() {
+        if (isEmpty())
+            throw new NoSuchElementException("head of empty " + stringPrefix());
+
+        return get(0);
+    }
+
+    @Override
+    public int length() {
+        return size();
+    }
+
+    @Override
+    public Object apply(Object o) {
+        return get((Integer) o);
+    }
+
+    @Override
+    public boolean isDefinedAt(Object value) {
+        var i = (Integer) value;
+        return 0 <= i && i < size();
+    }
+
+    @Override
+    public int indexOf(Object element, int from) {
+        read();
+        for (int i = Math.max(from, 0); i < list.size(); i++)
+            if (Objects.equals(element, list.get(i)))
+                return i;
+
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object element, int end) {
+        read();
+        for (int i = Math.min(end, list.size() - 1); i >= 0; i--)
+            if (Objects.equals(element, list.get(i)))
+                return i;
+
+        return -1;
+    }
+
+    @Override
+    public boolean hasDefiniteSize() {
+        return true;
+    }
+
+    @Override
+    public boolean isTraversableAgain() {
+        return true;
+    }
+
+    @Override
+    public boolean isAsync() {
+        return false;
+    }
+
+    @Override
+    public boolean isLazy() {
+        return false;
+    }
+
+    @Override
+    public String stringPrefix() {
+        return "Vector";
+    }
+
+    // new values, never this collection: the field set to one of them is diffed by the WrapVisitor hook with the snapshot
+    // of this collection, so that Hibernate only writes the rows whose index changed
+    @Override
+    public IndexedSeq append(Object element) {
+        return v().append(element);
+    }
+
+    @Override
+    public IndexedSeq appendAll(Iterable elements) {
+        return v().appendAll(elements);
+    }
+
+    @Override
+    public IndexedSeq prepend(Object element) {
+        return v().prepend(element);
+    }
+
+    @Override
+    public IndexedSeq prependAll(Iterable elements) {
+        return v().prependAll(elements);
+    }
+
+    @Override
+    public IndexedSeq insert(int index, Object element) {
+        return v().insert(index, element);
+    }
+
+    @Override
+    public IndexedSeq insertAll(int index, Iterable elements) {
+        return v().insertAll(index, elements);
+    }
+
+    @Override
+    public IndexedSeq update(int index, Object element) {
+        return v().update(index, element);
+    }
+
+    @Override
+    public IndexedSeq update(int index, Function updater) {
+        return v().update(index, updater);
+    }
+
+    @Override
+    public IndexedSeq removeAt(int index) {
+        return v().removeAt(index);
+    }
+
+    @Override
+    public IndexedSeq remove(Object element) {
+        return v().remove(element);
+    }
+
+    @Override
+    public IndexedSeq removeAll(Object element) {
+        return v().removeAll(Collections.singleton(element));
+    }
+
+    @Override
+    public IndexedSeq removeAll(Iterable elements) {
+        return v().removeAll(elements);
+    }
+
+    @Override
+    @Deprecated
+    public IndexedSeq removeAll(Predicate predicate) {
+        return v().reject(predicate);
+    }
+
+    @Override
+    public IndexedSeq removeFirst(Predicate predicate) {
+        return v().removeFirst(predicate);
+    }
+
+    @Override
+    public IndexedSeq removeLast(Predicate predicate) {
+        return v().removeLast(predicate);
+    }
+
+    @Override
+    public IndexedSeq retainAll(Iterable elements) {
+        return v().retainAll(elements);
+    }
+
+    @Override
+    public IndexedSeq replace(Object currentElement, Object newElement) {
+        return v().replace(currentElement, newElement);
+    }
+
+    @Override
+    public IndexedSeq replaceAll(Object currentElement, Object newElement) {
+        return v().replaceAll(currentElement, newElement);
+    }
+
+    // write() and dirty() are final in AbstractPersistentCollection, so the view is dropped by the writes themselves
+    @Override
+    public boolean add(Object object) {
+        view = null;
+        return super.add(object);
+    }
+
+    @Override
+    public void add(int index, Object value) {
+        view = null;
+        super.add(index, value);
+    }
+
+    @Override
+    public boolean addAll(Collection values) {
+        view = null;
+        return super.addAll(values);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection coll) {
+        view = null;
+        return super.addAll(index, coll);
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        view = null;
+        return super.set(index, value);
+    }
+
+    @Override
+    public Object remove(int index) {
+        view = null;
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean removePriv(Object value) {
+        view = null;
+        return super.removePriv(value);
+    }
+
+    @Override
+    public boolean removeAll(Collection coll) {
+        view = null;
+        return super.removeAll(coll);
+    }
+
+    @Override
+    public boolean removeIf(Predicate filter) {
+        view = null;
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public boolean retainAll(Collection coll) {
+        view = null;
+        return super.retainAll(coll);
+    }
+
+    @Override
+    public void clear() {
+        view = null;
+        super.clear();
+    }
+
+    // forward to vavr Vector
+    @Override
+    public java.util.List asJava() {
+        return v().asJava();
+    }
+
+    @Override
+    public IndexedSeq asJava(Consumer action) {
+        return v().asJava(action);
+    }
+
+    @Override
+    public java.util.List asJavaMutable() {
+        return v().asJavaMutable();
+    }
+
+    @Override
+    public IndexedSeq asJavaMutable(Consumer action) {
+        return v().asJavaMutable(action);
+    }
+
+    @Override
+    public IndexedSeq collect(PartialFunction partialFunction) {
+        return v().collect(partialFunction);
+    }
+
+    @Override
+    public IndexedSeq combinations() {
+        return v().combinations();
+    }
+
+    @Override
+    public IndexedSeq combinations(int k) {
+        return v().combinations(k);
+    }
+
+    @Override
+    public Iterator crossProduct(int power) {
+        return v().crossProduct(power);
+    }
+
+    @Override
+    public IndexedSeq distinct() {
+        return v().distinct();
+    }
+
+    @Override
+    public IndexedSeq distinctBy(Comparator comparator) {
+        return v().distinctBy(comparator);
+    }
+
+    @Override
+    public IndexedSeq distinctBy(Function keyExtractor) {
+        return v().distinctBy(keyExtractor);
+    }
+
+    @Override
+    public IndexedSeq drop(int n) {
+        return v().drop(n);
+    }
+
+    @Override
+    public IndexedSeq dropRight(int n) {
+        return v().dropRight(n);
+    }
+
+    @Override
+    public IndexedSeq dropRightUntil(Predicate predicate) {
+        return v().dropRightUntil(predicate);
+    }
+
+    @Override
+    public IndexedSeq dropRightWhile(Predicate predicate) {
+        return v().dropRightWhile(predicate);
+    }
+
+    @Override
+    public IndexedSeq dropUntil(Predicate predicate) {
+        return v().dropUntil(predicate);
+    }
+
+    @Override
+    public IndexedSeq dropWhile(Predicate predicate) {
+        return v().dropWhile(predicate);
+    }
+
+    @Override
+    public IndexedSeq filter(Predicate predicate) {
+        return v().filter(predicate);
+    }
+
+    @Override
+    public IndexedSeq flatMap(Function mapper) {
+        return v().flatMap(mapper);
+    }
+
+    @Override
+    public Map groupBy(Function classifier) {
+        return v().groupBy(classifier);
+    }
+
+    @Override
+    public Iterator grouped(int size) {
+        return v().grouped(size);
+    }
+
+    @Override
+    public IndexedSeq init() {
+        return v().init();
+    }
+
+    @Override
+    public Option initOption() {
+        return v().initOption();
+    }
+
+    @Override
+    public IndexedSeq intersperse(Object element) {
+        return v().intersperse(element);
+    }
+
+    @Override
+    public Seq leftPadTo(int length, Object element) {
+        return v().leftPadTo(length, element);
+    }
+
+    @Override
+    public IndexedSeq map(Function mapper) {
+        return v().map(mapper);
+    }
+
+    @Override
+    public IndexedSeq orElse(Iterable other) {
+        return v().orElse(other);
+    }
+
+    @Override
+    public IndexedSeq orElse(Supplier supplier) {
+        return v().orElse(supplier);
+    }
+
+    @Override
+    public IndexedSeq padTo(int length, Object element) {
+        return v().padTo(length, element);
+    }
+
+    @Override
+    public Tuple2 partition(Predicate predicate) {
+        return v().partition(predicate);
+    }
+
+    @Override
+    public IndexedSeq patch(int from, Iterable that, int replaced) {
+        return v().patch(from, that, replaced);
+    }
+
+    @Override
+    public IndexedSeq peek(Consumer action) {
+        return v().peek(action);
+    }
+
+    @Override
+    public IndexedSeq permutations() {
+        return v().permutations();
+    }
+
+    @Override
+    public IndexedSeq reject(Predicate predicate) {
+        return v().reject(predicate);
+    }
+
+    @Override
+    public IndexedSeq reverse() {
+        return v().reverse();
+    }
+
+    @Override
+    public IndexedSeq rotateLeft(int n) {
+        return v().rotateLeft(n);
+    }
+
+    @Override
+    public IndexedSeq rotateRight(int n) {
+        return v().rotateRight(n);
+    }
+
+    @Override
+    public IndexedSeq scan(Object zero, BiFunction operation) {
+        return v().scan(zero, operation);
+    }
+
+    @Override
+    public IndexedSeq scanLeft(Object zero, BiFunction operation) {
+        return v().scanLeft(zero, operation);
+    }
+
+    @Override
+    public IndexedSeq scanRight(Object zero, BiFunction operation) {
+        return v().scanRight(zero, operation);
+    }
+
+    @Override
+    public IndexedSeq shuffle() {
+        return v().shuffle();
+    }
+
+    @Override
+    public IndexedSeq slice(int beginIndex, int endIndex) {
+        return v().slice(beginIndex, endIndex);
+    }
+
+    @Override
+    public Iterator slideBy(Function classifier) {
+        return v().slideBy(classifier);
+    }
+
+    @Override
+    public Iterator sliding(int size) {
+        return v().sliding(size);
+    }
+
+    @Override
+    public Iterator sliding(int size, int step) {
+        return v().sliding(size, step);
+    }
+
+    @Override
+    public IndexedSeq sortBy(Function mapper) {
+        return v().sortBy(mapper);
+    }
+
+    @Override
+    public IndexedSeq sortBy(Comparator comparator, Function mapper) {
+        return v().sortBy(comparator, mapper);
+    }
+
+    @Override
+    public IndexedSeq sorted() {
+        return v().sorted();
+    }
+
+    @Override
+    public IndexedSeq sorted(Comparator comparator) {
+        return v().sorted(comparator);
+    }
+
+    @Override
+    public Tuple2 span(Predicate predicate) {
+        return v().span(predicate);
+    }
+
+    @Override
+    public Tuple2 splitAt(int n) {
+        return v().splitAt(n);
+    }
+
+    @Override
+    public Tuple2 splitAt(Predicate predicate) {
+        return v().splitAt(predicate);
+    }
+
+    @Override
+    public Tuple2 splitAtInclusive(Predicate predicate) {
+        return v().splitAtInclusive(predicate);
+    }
+
+    @Override
+    public IndexedSeq subSequence(int beginIndex) {
+        return v().subSequence(beginIndex);
+    }
+
+    @Override
+    public IndexedSeq subSequence(int beginIndex, int endIndex) {
+        return v().subSequence(beginIndex, endIndex);
+    }
+
+    @Override
+    public IndexedSeq tail() {
+        return v().tail();
+    }
+
+    @Override
+    public Option tailOption() {
+        return v().tailOption();
+    }
+
+    @Override
+    public IndexedSeq take(int n) {
+        return v().take(n);
+    }
+
+    @Override
+    public IndexedSeq takeRight(int n) {
+        return v().takeRight(n);
+    }
+
+    @Override
+    public IndexedSeq takeRightUntil(Predicate predicate) {
+        return v().takeRightUntil(predicate);
+    }
+
+    @Override
+    public IndexedSeq takeRightWhile(Predicate predicate) {
+        return v().takeRightWhile(predicate);
+    }
+
+    @Override
+    public IndexedSeq takeUntil(Predicate predicate) {
+        return v().takeUntil(predicate);
+    }
+
+    @Override
+    public IndexedSeq takeWhile(Predicate predicate) {
+        return v().takeWhile(predicate);
+    }
+
+    @Override
+    public Tuple2 unzip(Function unzipper) {
+        return v().unzip(unzipper);
+    }
+
+    @Override
+    public Tuple3 unzip3(Function unzipper) {
+        return v().unzip3(unzipper);
+    }
+
+    @Override
+    public IndexedSeq zip(Iterable that) {
+        return v().zip(that);
+    }
+
+    @Override
+    public IndexedSeq zipAll(Iterable that, Object thisElem, Object thatElem) {
+        return v().zipAll(that, thisElem, thatElem);
+    }
+
+    @Override
+    public IndexedSeq zipWith(Iterable that, BiFunction mapper) {
+        return v().zipWith(that, mapper);
+    }
+
+    @Override
+    public IndexedSeq zipWithIndex() {
+        return v().zipWithIndex();
+    }
+
+    @Override
+    public IndexedSeq zipWithIndex(BiFunction mapper) {
+        return v().zipWithIndex(mapper);
+    }
+}
@@ -15,7 +15,6 @@
  */
 package io.github.jleblanc64.hibernate5.impl;
 
-import com.google.common.collect.Streams;
 import io.github.jleblanc64.hibernate5.hibernate.duplicate.MyPersistentSet;
 import io.vavr.PartialFunction;
 import io.vavr.Tuple2;
@@ -26,20 +25,42 @@ import io.vavr.collection.Map;
 import io.vavr.collection.Set;
 import io.vavr.control.Option;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Objects;
 import java.util.function.*;
 
 import static com.google.common.collect.Sets.newHashSet;
 
 public class PersistentSetImpl extends MyPersistentSet implements Set {
-    static RuntimeException NOT_IMPL = new RuntimeException("Not implemented");
+    // immutable copy shared by the read-only vavr methods, dropped by the writes below or when the backing set is replaced
+    private transient HashSet view;
+    private transient java.util.Set viewOf;
 
     public PersistentSetImpl(SharedSessionContractImplementor session, Collection coll) {
         super(session, coll);
     }
 
+    @Override
+    public boolean equalsSnapshot(CollectionPersister persister) {
+        return SnapshotCheck.unchanged(this, persister) || super.equalsSnapshot(persister);
+    }
+
+    @Override
+    public boolean afterInitialize() {
+        var done = super.afterInitialize();
+        ReadOnlyLoad.materialize(this, () -> HashSet.ofAll(set));
+        return done;
+    }
+
+    @Override
+    public Serializable getSnapshot(CollectionPersister persister) {
+        return ReadOnlyLoad.isPlain(this, persister) ? null : super.getSnapshot(persister);
+    }
+
     @Override
     public java.util.Set toJavaSet() {
         return newHashSet((iteratorPriv()));
@@ -51,7 +72,56 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
     }
 
     HashSet h() {
-        return HashSet.ofAll(Streams.stream(iteratorPriv()));
+        read();
+        if (view == null || viewOf != set) {
+            view = HashSet.ofAll(set);
+            viewOf = set;
+        }
+
+        return view;
+    }
+
+    // write() and dirty() are final in AbstractPersistentCollection, so the view is dropped by the writes themselves
+    @Override
+    public boolean addPriv(Object value) {
+        view = null;
+        return super.addPriv(value);
+    }
+
+    @Override
+    public boolean removePriv(Object value) {
+        view = null;
+        return super.removePriv(value);
+    }
+
+    @Override
+    public boolean addAll(Collection coll) {
+        view = null;
+        return super.addAll(coll);
+    }
+
+    @Override
+    public boolean replacePriv(Object current, Object replacement) {
+        view = null;
+        return super.replacePriv(current, replacement);
+    }
+
+    @Override
+    public boolean retainAll(Collection coll) {
+        view = null;
+        return super.retainAll(coll);
+    }
+
+    @Override
+    public boolean removeAll(Collection coll) {
+        view = null;
+        return super.removeAll(coll);
+    }
+
+    @Override
+    public void clear() {
+        view = null;
+        super.clear();
     }
 
     @Override
@@ -62,7 +132,7 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
 
     @Override
     public Set addAll(Iterable elements) {
-        super.addAll(newHashSet(elements));
+        addAll(newHashSet(elements));
         return this;
     }
 
@@ -77,26 +147,32 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
         return this;
     }
 
+    // in place, so that Hibernate issues row deletes / inserts instead of recreating the collection
     @Override
     public Set removeAll(Iterable elements) {
-        super.removeAll(toJavaSet());
+        for (var e : elements)
+            removePriv(e);
+
         return this;
     }
 
-    // not implemented
     @Override
     public Set replace(Object currentElement, Object newElement) {
-        throw NOT_IMPL;
+        if (!Objects.equals(currentElement, newElement))
+            replacePriv(currentElement, newElement);
+
+        return this;
     }
 
     @Override
     public Set replaceAll(Object currentElement, Object newElement) {
-        throw NOT_IMPL;
+        return replace(currentElement, newElement);
     }
 
     @Override
     public Set retainAll(Iterable elements) {
-        throw NOT_IMPL;
+        retainAll(elements instanceof Collection ? (Collection) elements : newHashSet(elements));
+        return this;
     }
 
     // forward to vavr HashSet
@@ -167,7 +243,7 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
 
     @Override
     public boolean hasDefiniteSize() {
-        return h().hasDefiniteSize();
+        return true;
     }
 
     @Override
@@ -187,7 +263,7 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
 
     @Override
     public boolean isTraversableAgain() {
-        return h().isTraversableAgain();
+        return true;
     }
 
     @Override
@@ -207,12 +283,12 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
 
     @Override
     public boolean isAsync() {
-        return h().isAsync();
+        return false;
     }
 
     @Override
     public boolean isLazy() {
-        return h().isLazy();
+        return false;
     }
 
     @Override
@@ -222,7 +298,7 @@ public class PersistentSetImpl extends MyPersistentSet implements Set {
 
     @Override
     public String stringPrefix() {
-        return h().stringPrefix();
+        return "HashSet";
     }
 
     @Override
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.collection.CollectionPersister;
+
+import java.util.function.Supplier;
+
+// collection loaded for a read-only owner (Session.setDefaultReadOnly, readOnly transactions, org.hibernate.readOnly hint):
+// no snapshot is taken and the owner field gets a plain vavr value, the wrapper stays in the persistence context without
+// ever being written, see the processCollection and preFlush hooks in VavrHibernate5
+final class ReadOnlyLoad {
+    // called from afterInitialize, once the elements are read: the owner field gets the plain value
+    static void materialize(AbstractPersistentCollection c, Supplier<Object> value) {
+        var session = c.getSession();
+        if (session == null || c.getRole() == null)
+            return;
+
+        var persister = session.getFactory().getMetamodel().collectionPersister(c.getRole());
+        var i = ownerProperty(c, persister);
+        if (i >= 0)
+            persister.getOwnerEntityPersister().setPropertyValue(c.getOwner(), i, value.get());
+    }
+
+    // called from getSnapshot, true if the snapshot must be skipped
+    static boolean isPlain(AbstractPersistentCollection c, CollectionPersister persister) {
+        return ownerProperty(c, persister) >= 0;
+    }
+
+    // index of the owner property holding a plain value instead of c, -1 if c is a regular collection
+    private static int ownerProperty(AbstractPersistentCollection c, CollectionPersister persister) {
+        // only just loaded collections: new wrappers have no key yet, written ones are snapshotted again after the flush
+        var session = c.getSession();
+        if (session == null || c.getKey() == null || c.getOwner() == null || c.isDirty())
+            return -1;
+
+        // CollectionEntry.getOrphans needs the snapshot
+        if (persister.hasOrphanDelete())
+            return -1;
+
+        var entry = session.getPersistenceContextInternal().getEntry(c.getOwner());
+        if (entry == null || entry.getStatus() != Status.READ_ONLY)
+            return -1;
+
+        // top level attributes only: a collection in an embeddable keeps the wrapper, which can still be written, and its snapshot;
+        // the metamodel also indexes "embeddable.collection" under the embeddable
+        var ownerPersister = persister.getOwnerEntityPersister();
+        var property = persister.getRole().substring(ownerPersister.getEntityName().length() + 1);
+        var i = ownerPersister.getEntityMetamodel().getPropertyIndexOrNull(property);
+        if (i == null || !ownerPersister.getPropertyNames()[i].equals(property))
+            return -1;
+
+        return i;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.impl;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.persister.collection.CollectionPersister;
+
+// equalsSnapshot shortcut shared by the vavr collections: CollectionEntry.dirty only asks a collection that was not written,
+// and the backing collection never leaves this package mutable, so only its writes can change it and they mark it dirty.
+// The walk is still needed when the elements themselves can change; a collection loaded read-only has no snapshot and is
+// never written
+final class SnapshotCheck {
+    static boolean unchanged(PersistentCollection c, CollectionPersister persister) {
+        return c.getStoredSnapshot() == null || !persister.getElementType().isMutable();
+    }
+}
@@ -35,4 +35,14 @@ public interface MetaColl<T, Col extends Collection> extends WithClass<T> {
     default boolean isSet() {
         return javaType() == Set.class;
     }
+
+    // mapped as an @OrderColumn list instead of a bag
+    default boolean isIndexed() {
+        return false;
+    }
+
+    // persistent collection used instead of bag() when the field has @CollectionId, null if idbags are not supported
+    default BagProvider<? extends T> idBag() {
+        return null;
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.meta;
+
+import java.util.List;
+import java.util.Optional;
+
+// first registered meta matching a class, memoized per class
+public class MetaLookup<M extends WithClass> {
+    private final List<M> metas;
+
+    private final ClassValue<Optional<M>> byClass = new ClassValue<>() {
+        @Override
+        protected Optional<M> computeValue(Class<?> type) {
+            return metas.stream().filter(m -> m.isSuperClassOf(type)).findFirst();
+        }
+    };
+
+    public MetaLookup(List<M> metas) {
+        this.metas = List.copyOf(metas);
+    }
+
+    public List<M> metas() {
+        return metas;
+    }
+
+    public M of(Object o) {
+        if (o == null)
+            return null;
+
+        var clazz = o instanceof Class ? (Class<?>) o : o.getClass();
+        return byClass.get(clazz).orElse(null);
+    }
+}
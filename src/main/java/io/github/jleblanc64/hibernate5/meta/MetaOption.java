@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.databind.type.TypeModifier;
 
 import java.lang.reflect.Type;
+import java.util.function.Supplier;
 
 public interface MetaOption<T> extends WithClass<T> {
     T fromValue(Object v);
@@ -36,6 +37,16 @@ public interface MetaOption<T> extends WithClass<T> {
         return fromValue(null);
     }
 
+    // Option computing its value on first access, used for lazy associations Hibernate cannot proxy; null if not supported
+    default T lazy(Supplier<Object> value) {
+        return null;
+    }
+
+    // false for a lazy Option whose value was not computed yet
+    default boolean isResolved(Object o) {
+        return true;
+    }
+
     default Deserializers.Base deserBase() {
         return new Deserializers.Base() {
             @Override
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate5.meta;
+
+// monadClass -> (class -> monadClass.isAssignableFrom(class)), memoized for WithClass.isSuperClassOf
+class SuperClassOf {
+    private static final ClassValue<ClassValue<Boolean>> BY_MONAD_CLASS = new ClassValue<>() {
+        @Override
+        protected ClassValue<Boolean> computeValue(Class<?> monadClass) {
+            return new ClassValue<>() {
+                @Override
+                protected Boolean computeValue(Class<?> type) {
+                    return monadClass.isAssignableFrom(type);
+                }
+            };
+        }
+    };
+
+    static boolean of(Class<?> monadClass, Class<?> clazz) {
+        return BY_MONAD_CLASS.get(monadClass).get(clazz);
+    }
+}
@@ -25,6 +25,6 @@ public interface WithClass<T> {
             return false;
 
         var clazz = o instanceof Class ? ((Class) o) : o.getClass();
-        return monadClass().isAssignableFrom(clazz);
+        return SuperClassOf.of(monadClass(), clazz);
     }
 }
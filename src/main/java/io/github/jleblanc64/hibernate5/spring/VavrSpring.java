@@ -15,6 +15,7 @@
  */
 package io.github.jleblanc64.hibernate5.spring;
 
+import com.google.common.collect.MapMaker;
 import io.github.jleblanc64.hibernate5.hibernate.Utils;
 import io.github.jleblanc64.hibernate5.hibernate.duplicate.ParameterizedTypeImpl;
 import io.github.jleblanc64.hibernate5.meta.MetaList;
@@ -29,10 +30,17 @@ import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.data.projection.DefaultMethodInvokingMethodInterceptor;
 import org.springframework.data.repository.Repository;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static io.github.jleblanc64.hibernate5.hibernate.Utils.getRefl;
 import static io.github.jleblanc64.hibernate5.hibernate.Utils.invoke;
@@ -82,66 +90,68 @@ public class VavrSpring {
 
     @SneakyThrows
     public static void overrideCustom(MetaOption metaOption) {
-        var clazz = Class.forName("org.springframework.data.util.TypeDiscoverer");
-        LibCustom.modifyArg(clazz, "createInfo", 0, args -> {
-            var type = args[0].toString();
-            if (type.startsWith(metaOption.monadClass().getName() + "<")) {
-                var paramClass = Utils.paramClass(type);
-                var isEntity = Utils.isEntity(paramClass.getDeclaredAnnotations());
-                if (isEntity)
-                    return ParameterizedTypeImpl.of(Optional.class, paramClass, null);
+        // Option<Entity> -> Optional<Entity>, or LibCustom.ORIGINAL when the type is left untouched;
+        // memoized on the entity class, so that a redeployed application class is not pinned
+        var optionalTypes = new ClassValue<Object>() {
+            @Override
+            protected Object computeValue(Class<?> paramClass) {
+                if (!Utils.isEntity(paramClass.getDeclaredAnnotations()))
+                    return LibCustom.ORIGINAL;
+
+                return ParameterizedTypeImpl.of(Optional.class, paramClass, null);
             }
+        };
+        Function<Object, Object> toOptional = type -> {
+            var paramClass = optionParamClass(type, metaOption);
+            return paramClass == null ? LibCustom.ORIGINAL : optionalTypes.get(paramClass);
+        };
 
-            return LibCustom.ORIGINAL;
-        });
-
-        LibCustom.modifyReturn(MethodParameter.class, "getGenericParameterType", argsR -> {
-            var returned = argsR.returned.toString();
-            if (returned.startsWith(metaOption.monadClass().getName() + "<")) {
-                var paramClass = Utils.paramClass(returned);
-                var isEntity = Utils.isEntity(paramClass.getDeclaredAnnotations());
-                if (isEntity)
-                    return ParameterizedTypeImpl.of(Optional.class, paramClass, null);
-            }
+        var clazz = Class.forName("org.springframework.data.util.TypeDiscoverer");
+        LibCustom.modifyArg(clazz, "createInfo", 0, args -> toOptional.apply(args[0]));
 
-            return LibCustom.ORIGINAL;
-        });
+        LibCustom.modifyReturn(MethodParameter.class, "getGenericParameterType", argsR -> toOptional.apply(argsR.returned));
 
+        // MethodInvocation.getMethod, spring-aop is not a compile dependency
+        var invocationGetMethod = MethodHandles.publicLookup()
+                .findVirtual(Class.forName("org.aopalliance.intercept.MethodInvocation"), "getMethod", MethodType.methodType(Method.class))
+                .asType(MethodType.methodType(Method.class, Object.class));
+        var returnsOption = new ConcurrentHashMap<Method, Boolean>();
         LibCustom.modifyReturn(DefaultMethodInvokingMethodInterceptor.class, "invoke", argsR -> {
             var returned = argsR.returned;
-            var invocation = argsR.args[0];
-
-            if (invocation.toString().contains(metaOption.monadClass().getName())) {
-                if (metaOption.isSuperClassOf(returned))
-                    return returned;
+            var method = (Method) invocationGetMethod.invokeExact(argsR.args[0]);
 
-                var o = (Optional<?>) returned;
-                var v = o.isEmpty() ? null : o.get();
-                return metaOption.fromValue(v);
-            }
+            var isOption = returnsOption.computeIfAbsent(method, m -> returnsOption(m, metaOption));
+            if (isOption && returned instanceof Optional)
+                return metaOption.fromValue(((Optional<?>) returned).orElse(null));
 
             return returned;
         });
 
         clazz = Class.forName("org.springframework.aop.framework.JdkDynamicAopProxy");
+        var repositoryProxies = new MapMaker().weakKeys().<Object, Boolean>makeMap();
+        var optionParams = new ConcurrentHashMap<Method, int[]>();
         LibCustom.modifyArgWithSelf(clazz, "invoke", 2, argsS -> {
             var args = argsS.args;
-            var self = argsS.self;
+            if (args[2] == null)
+                return args[2];
 
-            var proxiedInterfaces = f((Class[]) getRefl(self, "proxiedInterfaces"));
-            if (!proxiedInterfaces.contains(Repository.class))
+            var isRepository = repositoryProxies.computeIfAbsent(argsS.self,
+                    self -> f((Class[]) getRefl(self, "proxiedInterfaces")).contains(Repository.class));
+            if (!isRepository)
                 return args[2];
 
-            if (args[2] == null)
+            var indexes = optionParams.computeIfAbsent((Method) args[1], m -> optionParamIndexes(m, metaOption));
+            if (indexes.length == 0)
                 return args[2];
 
-            var argsL = f((Object[]) args[2]);
-            return argsL.map(arg -> {
-                if (!metaOption.isSuperClassOf(arg) || arg instanceof List)
-                    return arg;
+            var argsA = ((Object[]) args[2]).clone();
+            for (var i : indexes) {
+                var arg = argsA[i];
+                if (metaOption.isSuperClassOf(arg) && !(arg instanceof List))
+                    argsA[i] = metaOption.getOrNull(arg);
+            }
 
-                return metaOption.getOrNull(arg);
-            }).toArray();
+            return argsA;
         });
 
         // request params
@@ -169,4 +179,32 @@ public class VavrSpring {
             return LibCustom.ORIGINAL;
         });
     }
+
+    // X of Option<X> when X is a class, null otherwise
+    private static Class<?> optionParamClass(Object type, MetaOption metaOption) {
+        if (!(type instanceof ParameterizedType))
+            return null;
+
+        var parameterizedType = (ParameterizedType) type;
+        var typeArgs = parameterizedType.getActualTypeArguments();
+        if (parameterizedType.getRawType() != metaOption.monadClass() || typeArgs.length != 1 || !(typeArgs[0] instanceof Class))
+            return null;
+
+        return (Class<?>) typeArgs[0];
+    }
+
+    // from the generic signature: Option<T> is parameterized, a type variable is erased to its bound
+    private static boolean returnsOption(Method m, MetaOption metaOption) {
+        var type = m.getGenericReturnType();
+        if (type instanceof ParameterizedType)
+            type = ((ParameterizedType) type).getRawType();
+
+        return metaOption.isSuperClassOf(type instanceof Class ? type : m.getReturnType());
+    }
+
+    // indexes of the parameters that can receive an Option: declared as Option, or as a supertype of it (generic ID, Object)
+    private static int[] optionParamIndexes(Method m, MetaOption metaOption) {
+        var types = m.getParameterTypes();
+        return IntStream.range(0, types.length).filter(i -> types[i].isAssignableFrom(metaOption.monadClass())).toArray();
+    }
 }
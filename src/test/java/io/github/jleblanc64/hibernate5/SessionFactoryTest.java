@@ -0,0 +1,89 @@
+package io.github.jleblanc64.hibernate5;
+
+import io.github.jleblanc64.hibernate5.hibernate.VavrHibernate5;
+import org.hibernate.Session;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// one session factory per test class, built over the given entities once the vavr hooks are installed;
+// without a database no connection is ever opened and entities are registered in the persistence context as if loaded
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class SessionFactoryTest {
+    private static boolean hooksInstalled;
+
+    private final boolean database;
+    private final Class<?>[] entities;
+    protected SessionFactoryImplementor factory;
+
+    protected SessionFactoryTest(Class<?>... entities) {
+        this(false, entities);
+    }
+
+    // database: an in-memory H2 schema created for the test class, with statistics to count the statements
+    protected SessionFactoryTest(boolean database, Class<?>... entities) {
+        this.database = database;
+        this.entities = entities;
+    }
+
+    private static synchronized void installHooks() {
+        if (!hooksInstalled)
+            VavrHibernate5.override();
+
+        hooksInstalled = true;
+    }
+
+    @BeforeAll
+    void buildFactory() {
+        installHooks();
+
+        var registry = new StandardServiceRegistryBuilder().applySetting("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        if (database)
+            registry.applySetting("hibernate.connection.url", "jdbc:h2:mem:" + getClass().getSimpleName() + ";DB_CLOSE_DELAY=-1")
+                    .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                    .applySetting("hibernate.generate_statistics", "true");
+        else
+            registry.applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false");
+
+        var sources = new MetadataSources(registry.build());
+        for (var entity : entities)
+            sources.addAnnotatedClass(entity);
+
+        factory = (SessionFactoryImplementor) sources.buildMetadata().buildSessionFactory();
+    }
+
+    @AfterAll
+    void closeFactory() {
+        factory.close();
+    }
+
+    protected void inTransaction(Consumer<Session> work) {
+        fromTransaction(session -> {
+            work.accept(session);
+            return null;
+        });
+    }
+
+    protected <T> T fromTransaction(Function<Session, T> work) {
+        try (var session = factory.openSession()) {
+            var transaction = session.beginTransaction();
+            var result = work.apply(session);
+            transaction.commit();
+            return result;
+        }
+    }
+
+    // statements prepared since the previous call
+    protected long statements() {
+        var statistics = factory.getStatistics();
+        var count = statistics.getPrepareStatementCount();
+        statistics.clear();
+        return count;
+    }
+}
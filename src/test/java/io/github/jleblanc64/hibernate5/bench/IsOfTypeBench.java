@@ -0,0 +1,46 @@
+package io.github.jleblanc64.hibernate5.bench;
+
+import io.github.jleblanc64.hibernate5.hibernate.Utils;
+import io.github.jleblanc64.hibernate5.impl.MetaListImpl;
+import io.vavr.collection.List;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=IsOfTypeBench
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsOfTypeBench {
+    static class Customer {
+        List<String> tags;
+    }
+
+    static class Role {
+        String fullPath = Customer.class.getName() + ".tags";
+    }
+
+    static class Persister {
+        Role navigableRole = new Role();
+    }
+
+    Persister persister = new Persister();
+    MetaListImpl meta = new MetaListImpl();
+
+    // previous BagType.instantiate check: role read, split, Class.forName and getDeclaredField on every call
+    @Benchmark
+    public boolean resolveRoleEachCall() throws Exception {
+        var path = (String) Utils.getRefl(Utils.getRefl(persister, "navigableRole"), "fullPath");
+        var i = path.lastIndexOf(".");
+        var field = Class.forName(path.substring(0, i)).getDeclaredField(path.substring(i + 1));
+        return meta.isSuperClassOf(field.getType());
+    }
+
+    @Benchmark
+    public boolean isOfType() {
+        return Utils.isOfType(persister, meta);
+    }
+}
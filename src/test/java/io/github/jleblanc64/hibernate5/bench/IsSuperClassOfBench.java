@@ -0,0 +1,92 @@
+package io.github.jleblanc64.hibernate5.bench;
+
+import io.github.jleblanc64.hibernate5.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate5.impl.MetaOptionImpl;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+// mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=IsSuperClassOfBench
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsSuperClassOfBench {
+    MetaListImpl metaList = new MetaListImpl();
+    MetaOptionImpl metaOption = new MetaOptionImpl();
+
+    Object list = List.of(1, 2);
+    Object javaList = new ArrayList<>();
+    Object some = Option.of(1);
+    Class<?> stringClass = String.class;
+
+    // what the hooks actually see: values of many types at the same call site
+    Object[] mixed = {List.of(1, 2), new ArrayList<>(), Option.of(1), "a", 1, HashSet.of(1), Vector.of(1),
+            new HashMap<>(), Option.none(), List.empty()};
+
+    // previous WithClass.isSuperClassOf: isAssignableFrom on every call
+    @Benchmark
+    public boolean isAssignableFromInstance() {
+        return metaList.monadClass().isAssignableFrom(list.getClass());
+    }
+
+    @Benchmark
+    public boolean isAssignableFromMiss() {
+        return metaList.monadClass().isAssignableFrom(javaList.getClass());
+    }
+
+    @Benchmark
+    public boolean isAssignableFromClass() {
+        return metaOption.monadClass().isAssignableFrom(stringClass);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public int isAssignableFromMixed() {
+        var n = 0;
+        for (var o : mixed)
+            if (metaList.monadClass().isAssignableFrom(o.getClass()))
+                n++;
+
+        return n;
+    }
+
+    @Benchmark
+    public boolean isSuperClassOfInstance() {
+        return metaList.isSuperClassOf(list);
+    }
+
+    @Benchmark
+    public boolean isSuperClassOfMiss() {
+        return metaList.isSuperClassOf(javaList);
+    }
+
+    @Benchmark
+    public boolean isSuperClassOfClass() {
+        return metaOption.isSuperClassOf(stringClass);
+    }
+
+    @Benchmark
+    public boolean isSuperClassOfOption() {
+        return metaOption.isSuperClassOf(some);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public int isSuperClassOfMixed() {
+        var n = 0;
+        for (var o : mixed)
+            if (metaList.isSuperClassOf(o))
+                n++;
+
+        return n;
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.jleblanc64.hibernate5.hibernate;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.github.jleblanc64.hibernate5.impl.LazyOption;
+import io.github.jleblanc64.hibernate5.impl.MetaOptionImpl;
+import io.vavr.control.Option;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.LockMode;
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.event.internal.EntityCopyNotAllowedObserver;
+import org.hibernate.event.internal.MergeContext;
+import org.hibernate.event.spi.EventSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.OneToOne;
+import javax.persistence.PrimaryKeyJoinColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyOneToOneTypeTest extends SessionFactoryTest {
+    LazyOneToOneType type;
+    SessionImplementor session;
+
+    public LazyOneToOneTypeTest() {
+        super(true, Person.class, Profile.class, Parent.class, Child.class);
+    }
+
+    @BeforeAll
+    void insert() {
+        inTransaction(session -> {
+            for (var id = 1L; id <= 3; id++) {
+                var parent = new Parent();
+                parent.id = id;
+                session.persist(parent);
+
+                var child = new Child();
+                child.id = id;
+                child.parent = parent;
+                session.persist(child);
+            }
+        });
+    }
+
+    // installed by the TypeFactory.oneToOne hook
+    @BeforeEach
+    void openSession() {
+        type = (LazyOneToOneType) factory.getMetamodel().entityPersister(Person.class).getPropertyType("profile");
+        session = (SessionImplementor) factory.openSession();
+    }
+
+    @AfterEach
+    void closeSession() {
+        if (session.isOpen())
+            session.close();
+    }
+
+    @Test
+    public void loadIsDeferredToTheFirstAccess() {
+        var person = loaded(new Person(1L));
+        var profile = loaded(new Profile(1L));
+
+        var option = (Option<Profile>) type.resolve(1L, session, person, null);
+        person.profile = option;
+        assertFalse(new MetaOptionImpl().isResolved(option));
+
+        assertSame(profile, option.get());
+        assertInstanceOf(Option.Some.class, person.profile);
+        assertEquals(Option.of(profile), person.profile);
+    }
+
+    @Test
+    public void knownNullAndEagerAreNotDeferred() {
+        var person = loaded(new Person(1L));
+        var profile = loaded(new Profile(1L));
+
+        assertSame(profile, type.resolve(1L, session, person, true));
+
+        var context = session.getPersistenceContextInternal();
+        context.addNullProperty(new EntityKey(1L, factory.getMetamodel().entityPersister(Person.class)), "profile");
+        assertNull(type.resolve(1L, session, person, null));
+    }
+
+    @Test
+    public void closedSession() {
+        var person = loaded(new Person(1L));
+        var option = (Option<?>) type.resolve(1L, session, person, null);
+        session.close();
+
+        assertThrows(LazyInitializationException.class, option::isEmpty);
+    }
+
+    @Test
+    public void mergeKeepsTheUnloadedOption() {
+        var detached = new Person(1L);
+        detached.profile = (Option<Profile>) type.resolve(1L, session, loaded(detached), null);
+        session.close();
+        session = (SessionImplementor) factory.openSession();
+
+        var managed = loaded(new Person(1L));
+        managed.profile = (Option<Profile>) type.resolve(1L, session, managed, null);
+        var mergeContext = new MergeContext((EventSource) session, EntityCopyNotAllowedObserver.FACTORY_OF_SELF.createEntityCopyObserver());
+        mergeContext.put(detached, managed, true);
+
+        // the getter reports null for the merged entity
+        assertSame(managed.profile, type.replace(null, null, session, managed, mergeContext));
+
+        detached.profile = Option.none();
+        assertNull(type.replace(null, null, session, managed, mergeContext));
+    }
+
+    // Some.equals only matches a Some
+    @Test
+    public void equalsIsSymmetric() {
+        var lazy = new LazyOption(() -> "a");
+
+        assertNotEquals(Option.of("a"), lazy);
+        assertNotEquals(lazy, Option.of("a"));
+        assertEquals(new LazyOption(() -> "a"), lazy);
+        assertEquals(lazy, new LazyOption(() -> "a"));
+        assertNotEquals(new LazyOption(() -> "b"), lazy);
+    }
+
+    // without the lazy type, Hibernate loads the inverse side of each parent with it
+    @Test
+    public void noSelectUntilTheOptionIsRead() {
+        inTransaction(session -> {
+            statements();
+            var parents = session.createQuery("from LazyOneToOneTypeTest$Parent order by id", Parent.class).list();
+            assertEquals(3, parents.size());
+            assertEquals(1, statements());
+
+            var first = parents.get(0);
+            assertEquals(1L, first.child.get().id);
+            assertEquals(1, statements());
+            assertInstanceOf(Option.Some.class, first.child);
+
+            session.flush();
+            assertEquals(0, statements());
+        });
+    }
+
+    private <T> T loaded(T entity) {
+        var persister = factory.getMetamodel().entityPersister(entity.getClass());
+        var id = persister.getIdentifier(entity, session);
+        session.getPersistenceContextInternal().addEntity(entity, Status.MANAGED, new Object[persister.getPropertyNames().length],
+                new EntityKey(id, persister), null, LockMode.NONE, true, persister, false);
+
+        return entity;
+    }
+
+    // property access so that Hibernate maps the association without the Option hooks, the field keeps the Option
+    @Entity
+    public static class Person {
+        Long id;
+        Option<Profile> profile;
+
+        Person() {
+        }
+
+        Person(Long id) {
+            this.id = id;
+        }
+
+        @Id
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        @OneToOne(fetch = FetchType.LAZY)
+        @PrimaryKeyJoinColumn
+        @LazyToOne(LazyToOneOption.NO_PROXY)
+        public Profile getProfile() {
+            return profile == null ? null : profile.getOrNull();
+        }
+
+        public void setProfile(Profile profile) {
+            this.profile = Option.of(profile);
+        }
+    }
+
+    // field access: the Option field gets the lazy type
+    @Entity
+    public static class Parent {
+        @Id
+        Long id;
+
+        @OneToOne(mappedBy = "parent", fetch = FetchType.LAZY)
+        @LazyToOne(LazyToOneOption.NO_PROXY)
+        Option<Child> child;
+    }
+
+    @Entity
+    public static class Child {
+        @Id
+        Long id;
+
+        @OneToOne
+        Parent parent;
+    }
+
+    @Entity
+    public static class Profile {
+        @Id
+        Long id;
+
+        Profile() {
+        }
+
+        Profile(Long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.jleblanc64.hibernate5.hibernate;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.collection.List;
+import io.vavr.collection.Set;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UtilsTest extends SessionFactoryTest {
+    public UtilsTest() {
+        super(Owner.class);
+    }
+
+    @Test
+    public void persisterFieldTypeThroughEmbeddables() {
+        var metamodel = factory.getMetamodel();
+
+        assertEquals(List.class, Utils.persisterFieldType(metamodel.collectionPersister(Owner.class.getName() + ".tags")));
+        assertEquals(Set.class, Utils.persisterFieldType(metamodel.collectionPersister(Owner.class.getName() + ".details.codes")));
+    }
+
+    @Entity
+    public static class Owner {
+        @Id
+        Long id;
+
+        @ElementCollection
+        List<String> tags;
+
+        @Embedded
+        Details details;
+    }
+
+    @Embeddable
+    public static class Details {
+        @ElementCollection
+        Set<String> codes;
+    }
+}
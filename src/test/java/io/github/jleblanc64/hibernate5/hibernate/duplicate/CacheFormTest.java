@@ -0,0 +1,126 @@
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Set;
+import org.hibernate.cache.spi.entry.CollectionCacheEntry;
+import org.hibernate.cache.spi.entry.StructuredCollectionCacheEntry;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the state of a collection cache entry, as written with hibernate.cache.use_structured_entries and read back
+public class CacheFormTest extends SessionFactoryTest {
+    public CacheFormTest() {
+        super(true, Owner.class, LongItem.class, IntItem.class);
+    }
+
+    @BeforeAll
+    void insert() {
+        inTransaction(session -> {
+            var longItems = List.range(1, 4).map(i -> {
+                var item = new LongItem();
+                item.id = (long) i;
+                session.persist(item);
+                return item;
+            });
+            var intItems = List.range(1, 3).map(i -> {
+                var item = new IntItem();
+                item.id = i;
+                session.persist(item);
+                return item;
+            });
+
+            var owner = new Owner();
+            owner.id = 1L;
+            owner.longItems = HashSet.ofAll(longItems);
+            owner.intItems = intItems;
+            owner.names = List.of("a", "b");
+            session.persist(owner);
+        });
+    }
+
+    @Test
+    public void packedIdentifiers() {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+
+            assertInstanceOf(long[].class, state(session, owner.longItems)[0]);
+            assertInstanceOf(int[].class, state(session, owner.intItems)[0]);
+
+            var longs = roundTrip(session, owner.longItems);
+            assertEquals(HashSet.of(1L, 2L, 3L), HashSet.ofAll(longs).map(o -> ((LongItem) o).id));
+
+            var ints = roundTrip(session, owner.intItems);
+            assertEquals(List.of(1, 2), List.ofAll(ints).map(o -> ((IntItem) o).id));
+        });
+    }
+
+    @Test
+    public void elements() {
+        inTransaction(session -> assertEquals(List.of("a", "b"), List.ofAll(roundTrip(session, session.get(Owner.class, 1L).names))));
+    }
+
+    private static Serializable[] state(org.hibernate.Session session, Object value) {
+        var collection = (PersistentCollection) value;
+        collection.forceInitialization();
+        var persister = ((SessionImplementor) session).getFactory().getMetamodel().collectionPersister(collection.getRole());
+        return new CollectionCacheEntry(collection, persister).getState();
+    }
+
+    // structured and destructured, then assembled in a new wrapper of the same role
+    private static Iterable roundTrip(org.hibernate.Session session, Object value) {
+        var collection = (PersistentCollection) value;
+        collection.forceInitialization();
+
+        var s = (SessionImplementor) session;
+        var persister = s.getFactory().getMetamodel().collectionPersister(collection.getRole());
+        var entry = new CollectionCacheEntry(collection, persister);
+        assertNotNull(entry.getState());
+        assertNotNull(entry.toString());
+
+        var structured = StructuredCollectionCacheEntry.INSTANCE.structure(entry);
+        var read = (CollectionCacheEntry) StructuredCollectionCacheEntry.INSTANCE.destructure(structured, s.getFactory());
+
+        var fresh = persister.getCollectionType().instantiate(s, persister, collection.getKey());
+        fresh.setOwner(collection.getOwner());
+        read.assemble(fresh, persister, collection.getOwner());
+        return (Iterable) fresh;
+    }
+
+    @Entity
+    public static class Owner {
+        @Id
+        Long id;
+
+        @OneToMany
+        @JoinColumn(name = "owner_id")
+        Set<LongItem> longItems;
+
+        @ManyToMany
+        @JoinTable(name = "owner_int_items")
+        List<IntItem> intItems;
+
+        @ElementCollection
+        List<String> names;
+    }
+
+    @Entity
+    public static class LongItem implements Serializable {
+        @Id
+        Long id;
+    }
+
+    @Entity
+    public static class IntItem implements Serializable {
+        @Id
+        Integer id;
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import org.hibernate.type.StringType;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ElementCountsTest extends SessionFactoryTest {
+    public ElementCountsTest() {
+        super(Item.class);
+    }
+
+    @Test
+    public void basicElements() {
+        var bag = Arrays.asList("a", "b", "b", null);
+        var snapshot = Arrays.asList("b", "a", null, "c");
+        var counts = new ElementCounts(bag, snapshot, StringType.INSTANCE, factory);
+
+        assertEquals(2, counts.inBag("b"));
+        assertEquals(1, counts.inSnapshot("b"));
+        assertEquals(0, counts.inBag("c"));
+        assertEquals(1, counts.inBag(null));
+        assertFalse(counts.sameCounts());
+
+        assertTrue(new ElementCounts(bag, Arrays.asList(null, "b", "a", "b"), StringType.INSTANCE, factory).sameCounts());
+    }
+
+    @Test
+    public void entitiesByIdentifier() {
+        var type = factory.getTypeHelper().entity(Item.class);
+        var one = new Item(1L);
+        var sameRow = new Item(1L);
+        var two = new Item(2L);
+        var unsaved = new Item(null);
+
+        List<Object> bag = new ArrayList<>(Arrays.asList(sameRow, two, unsaved, unsaved));
+        List<Object> snapshot = new ArrayList<>(Arrays.asList(one, two, unsaved));
+        var counts = new ElementCounts(bag, snapshot, type, factory);
+
+        assertEquals(1, counts.inBag(one));
+        assertEquals(1, counts.inSnapshot(sameRow));
+        assertEquals(2, counts.inBag(unsaved));
+        assertEquals(0, counts.inBag(new Item(null)));
+        assertFalse(counts.sameCounts());
+
+        assertTrue(new ElementCounts(Arrays.asList(sameRow, two), Arrays.asList(two, one), type, factory).sameCounts());
+    }
+
+    // hashCode / equals of entities must never be called
+    @Entity
+    public static class Item {
+        @Id
+        Long id;
+
+        Item() {
+        }
+
+        Item(Long id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            throw new IllegalStateException("hashCode");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            throw new IllegalStateException("equals");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.jleblanc64.hibernate5.hibernate.duplicate;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.github.jleblanc64.hibernate5.impl.PersistentBagImpl;
+import io.github.jleblanc64.hibernate5.impl.PersistentIdBagImpl;
+import org.hibernate.annotations.CollectionId;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
+import org.hibernate.engine.spi.CollectionKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MyCollectionTypeTest extends SessionFactoryTest {
+    SessionImplementor session;
+
+    public MyCollectionTypeTest() {
+        super(Owner.class);
+    }
+
+    @BeforeEach
+    void openSession() {
+        session = (SessionImplementor) factory.openSession();
+    }
+
+    @AfterEach
+    void closeSession() {
+        session.close();
+    }
+
+    @Test
+    public void takeOverKeepsTheManagedValueUnchanged() {
+        var persister = factory.getMetamodel().collectionPersister(Owner.class.getName() + ".tags");
+        var context = session.getPersistenceContextInternal();
+        var managed = new PersistentBagImpl(session, new ArrayList<>(Arrays.asList("a", "b")));
+        var entry = context.addInitializedCollection(persister, managed, 1L);
+        var snapshot = managed.getStoredSnapshot();
+
+        // what the application kept: var before = owner.getTags(); owner.setTags(before.append("c"))
+        io.vavr.collection.List<Object> before = managed;
+        var fresh = new PersistentBagImpl(session, new ArrayList<>(Arrays.asList("a", "b", "c")));
+        MyCollectionType.takeOver(fresh, managed, session);
+
+        assertEquals(io.vavr.collection.List.of("a", "b"), before);
+        assertFalse(managed.isDirty());
+        assertNull(context.getCollectionEntry(managed));
+
+        var freshEntry = context.getCollectionEntry(fresh);
+        assertSame(entry.getLoadedPersister(), freshEntry.getLoadedPersister());
+        assertEquals(1L, freshEntry.getLoadedKey());
+        assertSame(snapshot, freshEntry.getSnapshot());
+        assertSame(fresh, context.getCollection(new CollectionKey(persister, 1L)));
+        assertSame(snapshot, fresh.getStoredSnapshot());
+        assertEquals(1L, fresh.getKey());
+        assertTrue(fresh.isDirty());
+
+        assertFalse(fresh.getDeletes(persister, false).hasNext());
+        assertFalse(fresh.needsInserting("a", 0, persister.getElementType()));
+        assertTrue(fresh.needsInserting("c", 2, persister.getElementType()));
+    }
+
+    @Test
+    public void takeOverKeepsTheRowIdentifiers() {
+        var persister = factory.getMetamodel().collectionPersister(Owner.class.getName() + ".rows");
+        var context = session.getPersistenceContextInternal();
+        var managed = new PersistentIdBagImpl(session, new ArrayList<>(Arrays.asList("a", "b", "a")));
+        managed.identifiers = new HashMap<>(java.util.Map.of(0, 10L, 1, 11L, 2, 12L));
+        context.addInitializedCollection(persister, managed, 1L);
+
+        var fresh = new PersistentIdBagImpl(session, new ArrayList<>(Arrays.asList("b", "a", "c")));
+        MyCollectionType.takeOver(fresh, managed, session);
+
+        assertEquals(java.util.Map.of(0, 11L, 1, 10L), fresh.identifiers);
+        assertEquals(java.util.Map.of(0, 10L, 1, 11L, 2, 12L), managed.identifiers);
+
+        List<Object> deletes = new ArrayList<>();
+        fresh.getDeletes(persister, false).forEachRemaining(deletes::add);
+        assertEquals(List.of(12L), deletes);
+        assertTrue(fresh.needsInserting("c", 2, persister.getElementType()));
+        assertFalse(fresh.needsInserting("a", 1, persister.getElementType()));
+    }
+
+    // merge of a detached owner whose field was set to a plain vavr value
+    @Test
+    public void replaceElementsOfAVavrValue() {
+        var persister = factory.getMetamodel().collectionPersister(Owner.class.getName() + ".tags");
+        var target = new PersistentBagImpl(session, new ArrayList<>(Arrays.asList("x")));
+
+        var result = MyCollectionType.replaceElements(io.vavr.collection.List.of("a", "b"), target, new Owner(), new HashMap<>(),
+                session, persister.getCollectionType());
+
+        assertSame(target, result);
+        assertEquals(io.vavr.collection.List.of("a", "b"), target);
+        assertEquals(Arrays.asList("a", "b"), MyCollectionType.replaceElements(target, new ArrayList<>(), new Owner(),
+                new HashMap<>(), session, persister.getCollectionType()));
+    }
+
+    @Entity
+    @GenericGenerator(name = "increment", strategy = "increment")
+    public static class Owner {
+        @Id
+        Long id;
+
+        @ElementCollection
+        List<String> tags;
+
+        @ElementCollection
+        @CollectionId(columns = @Column(name = "row_id"), type = @Type(type = "long"), generator = "increment")
+        List<String> rows;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.control.Option;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityIdsTest extends SessionFactoryTest {
+    public EntityIdsTest() {
+        super(Customer.class);
+    }
+
+    @Test
+    public void proxyIsNotInitialized() {
+        try (var session = factory.openSession()) {
+            var proxy = session.load(Customer.class, 5L);
+            var option = Option.of(proxy);
+
+            assertTrue(option.isDefined());
+            assertEquals(5L, EntityIds.idOrNull(option, factory));
+            assertFalse(Hibernate.isInitialized(proxy));
+        }
+    }
+
+    @Test
+    public void loadedEntityAndNone() {
+        var customer = new Customer();
+        customer.id = 3L;
+
+        assertEquals(3L, EntityIds.idOrNull(Option.of(customer), factory));
+        assertNull(EntityIds.idOrNull(Option.none(), factory));
+    }
+
+    @Entity
+    public static class Customer {
+        @Id
+        Long id;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.IndexedSeq;
+import io.vavr.collection.List;
+import io.vavr.collection.Set;
+import io.vavr.collection.Vector;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.OrderColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// one count query shared by length and isEmpty, then one query per lookup: the collection itself is never loaded
+public class ExtraLazyTest extends SessionFactoryTest {
+    public ExtraLazyTest() {
+        super(true, Owner.class);
+    }
+
+    @BeforeAll
+    void insert() {
+        inTransaction(session -> {
+            var owner = new Owner();
+            owner.id = 1L;
+            owner.list = List.of("a", "b", "c");
+            owner.set = HashSet.of("a", "b", "c");
+            owner.seq = Vector.of("a", "b", "c");
+            session.persist(owner);
+        });
+    }
+
+    @Test
+    public void list() {
+        inTransaction(session -> {
+            var list = session.get(Owner.class, 1L).list;
+            statements();
+
+            assertEquals(3, list.length());
+            assertFalse(list.isEmpty());
+            assertTrue(list.contains("b"));
+            assertFalse(list.contains("x"));
+
+            assertEquals(3, statements());
+            assertFalse(Hibernate.isInitialized(list));
+        });
+    }
+
+    @Test
+    public void set() {
+        inTransaction(session -> {
+            var set = session.get(Owner.class, 1L).set;
+            statements();
+
+            assertEquals(3, set.length());
+            assertFalse(set.isEmpty());
+            assertTrue(set.contains("b"));
+            assertFalse(set.contains("x"));
+
+            assertEquals(3, statements());
+            assertFalse(Hibernate.isInitialized(set));
+        });
+    }
+
+    @Test
+    public void seq() {
+        inTransaction(session -> {
+            var seq = session.get(Owner.class, 1L).seq;
+            statements();
+
+            assertEquals(3, seq.length());
+            assertFalse(seq.isEmpty());
+            assertTrue(seq.contains("b"));
+            assertEquals("c", seq.get(2));
+
+            assertEquals(3, statements());
+            assertFalse(Hibernate.isInitialized(seq));
+        });
+    }
+
+    @Entity
+    public static class Owner {
+        @Id
+        Long id;
+
+        @ElementCollection
+        @CollectionTable(name = "owner_list")
+        @LazyCollection(LazyCollectionOption.EXTRA)
+        List<String> list;
+
+        @ElementCollection
+        @CollectionTable(name = "owner_set")
+        @LazyCollection(LazyCollectionOption.EXTRA)
+        Set<String> set;
+
+        @ElementCollection
+        @CollectionTable(name = "owner_seq")
+        @OrderColumn
+        @LazyCollection(LazyCollectionOption.EXTRA)
+        IndexedSeq<String> seq;
+    }
+}
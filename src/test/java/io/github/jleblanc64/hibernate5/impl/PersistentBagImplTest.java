@@ -0,0 +1,86 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentBagImplTest {
+    private static PersistentBagImpl bag(Object... elements) {
+        return new PersistentBagImpl(null, new ArrayList<>(Arrays.asList(elements)));
+    }
+
+    @Test
+    public void subListsAreNewValues() {
+        var bag = bag("a", "b", "c", "d");
+
+        assertEquals(List.of("b", "c", "d"), bag.tail());
+        assertEquals(List.of("a", "b", "c"), bag.init());
+        assertEquals(List.of("a", "b"), bag.take(2));
+        assertEquals(List.of("c", "d"), bag.drop(2));
+        assertEquals(List.of("c", "d"), bag.takeRight(2));
+        assertEquals(List.of("a", "b"), bag.dropRight(2));
+        assertEquals(List.of("b", "c"), bag.subSequence(1, 3));
+        assertEquals(List.of("b", "c"), bag.slice(1, 3));
+        assertEquals(List.empty(), bag.take(-1));
+        assertEquals(List.empty(), bag.drop(5));
+
+        // nothing left out: still not the managed wrapper
+        assertNotSame(bag, bag.take(4));
+        assertNotSame(bag, bag.drop(0));
+        assertNotSame(bag, bag.takeRight(10));
+        assertNotSame(bag, bag.dropRight(0));
+        assertNotSame(bag, bag.filter(x -> true));
+        assertEquals(List.of("a", "b", "c", "d"), bag.filter(x -> true));
+        assertEquals(List.of("b", "d"), bag.filter(x -> !x.equals("a") && !x.equals("c")));
+    }
+
+    @Test
+    public void subListsDoNotFollowTheBag() {
+        var bag = bag("a", "b", "c");
+        var tail = bag.tail();
+
+        bag.add("d");
+
+        assertEquals(List.of("b", "c"), tail);
+        assertEquals(List.of("b", "c", "d"), bag.tail());
+    }
+
+    @Test
+    public void viewOfView() {
+        var view = bag("a", "b", "c", "d", "e").tail();
+
+        assertInstanceOf(ListView.class, view.tail());
+        assertEquals(List.of("c", "d"), view.tail().init());
+        assertEquals(List.of("d"), view.drop(1).take(2).takeRight(1).slice(0, 1));
+        assertEquals("d", view.get(2));
+        assertEquals(4, view.length());
+
+        // vavr defaults recursing on tail()
+        assertEquals(4, view.zipWithIndex().length());
+        assertEquals("b-c-d-e", view.intersperse("-").mkString());
+    }
+
+    @Test
+    public void viewEqualsVavrList() {
+        var view = bag(1, 2, 3).tail();
+
+        assertEquals(List.of(2, 3), view);
+        assertEquals(view, List.of(2, 3));
+        assertNotEquals(view, List.of(2, 3, 4));
+        assertEquals(List.of(2, 3).hashCode(), view.hashCode());
+        assertEquals("List(2, 3)", view.toString());
+    }
+
+    @Test
+    public void tailOfEmpty() {
+        var bag = bag();
+
+        assertThrows(UnsupportedOperationException.class, bag::tail);
+        assertThrows(UnsupportedOperationException.class, bag::init);
+        assertEquals(List.empty(), bag.take(3));
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.collection.List;
+import org.hibernate.annotations.CollectionId;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToMany;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentIdBagImplTest extends SessionFactoryTest {
+    public PersistentIdBagImplTest() {
+        super(true, Owner.class, Tag.class);
+    }
+
+    @BeforeEach
+    void insert() {
+        inTransaction(session -> {
+            session.createQuery("delete from PersistentIdBagImplTest$Owner").executeUpdate();
+            session.createQuery("delete from PersistentIdBagImplTest$Tag").executeUpdate();
+
+            var owner = new Owner();
+            owner.id = 1L;
+            owner.tags = List.of(new Tag(1L), new Tag(2L), new Tag(3L));
+            owner.tags.forEach(session::persist);
+            session.persist(owner);
+        });
+    }
+
+    @Test
+    public void removeDeletesOneRow() {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+            owner.tags.size();
+            statements();
+
+            owner.tags = owner.tags.removeAt(1);
+        });
+
+        assertEquals(1, statements());
+        assertEquals(List.of(1L, 3L), tagIds());
+    }
+
+    @Test
+    public void appendInsertsOneRow() {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+            var tag = new Tag(4L);
+            session.persist(tag);
+            owner.tags.size();
+            session.flush();
+            statements();
+
+            owner.tags = owner.tags.append(tag);
+        });
+
+        assertEquals(1, statements());
+        assertEquals(List.of(1L, 2L, 3L, 4L), tagIds());
+    }
+
+    private List<Long> tagIds() {
+        return fromTransaction(session -> session.get(Owner.class, 1L).tags.map(t -> t.id).sorted());
+    }
+
+    @Entity
+    @GenericGenerator(name = "increment", strategy = "increment")
+    public static class Owner {
+        @Id
+        Long id;
+
+        @ManyToMany
+        @CollectionId(columns = @Column(name = "row_id"), type = @Type(type = "long"), generator = "increment")
+        List<Tag> tags;
+    }
+
+    // rows are matched by identifier, never through the entity equals / hashCode
+    @Entity
+    public static class Tag {
+        @Id
+        Long id;
+
+        Tag() {
+        }
+
+        Tag(Long id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int hashCode() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
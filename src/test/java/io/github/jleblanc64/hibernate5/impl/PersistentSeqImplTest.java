@@ -0,0 +1,115 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.collection.IndexedSeq;
+import io.vavr.collection.Vector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.OrderColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentSeqImplTest extends SessionFactoryTest {
+    static final IndexedSeq<String> ITEMS = Vector.range(0, 100).map(i -> "item" + i);
+
+    public PersistentSeqImplTest() {
+        super(true, Owner.class);
+    }
+
+    @BeforeEach
+    void insert() {
+        inTransaction(session -> {
+            session.createQuery("from PersistentSeqImplTest$Owner").list().forEach(session::delete);
+            session.flush();
+
+            for (var id = 1L; id <= 2; id++) {
+                var owner = new Owner();
+                owner.id = id;
+                owner.items = id == 1 ? ITEMS : Vector.empty();
+                session.persist(owner);
+            }
+        });
+    }
+
+    @Test
+    public void appendInsertsOneRow() {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+            owner.items.size();
+            statements();
+
+            owner.items = owner.items.append("last");
+        });
+
+        assertEquals(1, statements());
+        assertEquals(ITEMS.append("last"), items(1L));
+    }
+
+    @Test
+    public void updateWritesOneRow() {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+            owner.items.size();
+            statements();
+
+            owner.items = owner.items.update(50, "changed");
+        });
+
+        assertEquals(1, statements());
+        assertEquals(ITEMS.update(50, "changed"), items(1L));
+    }
+
+    @Test
+    public void writesLeaveTheManagedValueUnchanged() {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+            var before = owner.items;
+
+            assertEquals(ITEMS.append("x"), before.append("x"));
+            assertEquals(ITEMS.prepend("x"), before.prepend("x"));
+            assertEquals(ITEMS.insert(3, "x"), before.insert(3, "x"));
+            assertEquals(ITEMS.removeAt(3), before.removeAt(3));
+            assertEquals(ITEMS.remove("item3"), before.remove("item3"));
+            assertEquals(ITEMS.retainAll(Vector.of("item3")), before.retainAll(Vector.of("item3")));
+            assertEquals(ITEMS.replace("item3", "x"), before.replace("item3", "x"));
+            assertNotSame(before, before.update(0, "item0"));
+
+            assertEquals(ITEMS, before);
+            assertFalse(((PersistentSeqImpl) before).isDirty());
+        });
+
+        assertEquals(ITEMS, items(1L));
+    }
+
+    // a value derived from the collection of one owner given to another one is a new collection, not a shared reference
+    @Test
+    public void derivedValueToAnotherOwner() {
+        inTransaction(session -> {
+            var first = session.get(Owner.class, 1L);
+            var second = session.get(Owner.class, 2L);
+
+            second.items = first.items.append("last");
+        });
+
+        assertEquals(ITEMS, items(1L));
+        assertEquals(ITEMS.append("last"), items(2L));
+    }
+
+    private IndexedSeq<String> items(Long id) {
+        return fromTransaction(session -> Vector.ofAll(session.get(Owner.class, id).items));
+    }
+
+    @Entity
+    public static class Owner {
+        @Id
+        Long id;
+
+        @ElementCollection
+        @OrderColumn
+        IndexedSeq<String> items;
+    }
+}
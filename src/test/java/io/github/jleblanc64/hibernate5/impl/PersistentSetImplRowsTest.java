@@ -0,0 +1,82 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the bulk writes of a persistent Set edit it in place, Hibernate then writes only the rows of the changed elements
+public class PersistentSetImplRowsTest extends SessionFactoryTest {
+    public PersistentSetImplRowsTest() {
+        super(true, Owner.class);
+    }
+
+    @BeforeEach
+    void insert() {
+        inTransaction(session -> {
+            session.createQuery("from PersistentSetImplRowsTest$Owner").list().forEach(session::delete);
+            session.flush();
+
+            var owner = new Owner();
+            owner.id = 1L;
+            owner.tags = HashSet.of("a", "b", "c", "d");
+            session.persist(owner);
+        });
+    }
+
+    @Test
+    public void removeAll() {
+        assertEquals(2, write(tags -> tags.removeAll(List.of("a", "b", "x"))));
+        assertEquals(HashSet.of("c", "d"), tags());
+    }
+
+    @Test
+    public void retainAll() {
+        assertEquals(3, write(tags -> tags.retainAll(List.of("a", "x"))));
+        assertEquals(HashSet.of("a"), tags());
+    }
+
+    @Test
+    public void replace() {
+        assertEquals(2, write(tags -> tags.replace("a", "z")));
+        assertEquals(HashSet.of("z", "b", "c", "d"), tags());
+
+        assertEquals(0, write(tags -> tags.replaceAll("x", "y")));
+        assertEquals(0, write(tags -> tags.replace("b", "b")));
+    }
+
+    // statements of the flush
+    private long write(Consumer<Set<String>> update) {
+        inTransaction(session -> {
+            var owner = session.get(Owner.class, 1L);
+            owner.tags.size();
+            statements();
+
+            update.accept(owner.tags);
+        });
+
+        return statements();
+    }
+
+    private Set<String> tags() {
+        return fromTransaction(session -> HashSet.ofAll(session.get(Owner.class, 1L).tags));
+    }
+
+    @Entity
+    public static class Owner {
+        @Id
+        Long id;
+
+        @ElementCollection
+        Set<String> tags;
+    }
+}
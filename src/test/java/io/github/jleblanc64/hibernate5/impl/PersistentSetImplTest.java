@@ -0,0 +1,52 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.vavr.collection.HashSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentSetImplTest {
+    private static PersistentSetImpl set(Object... elements) {
+        return new PersistentSetImpl(null, Arrays.asList(elements));
+    }
+
+    @Test
+    public void viewIsSharedUntilAWrite() {
+        var set = set("a", "b", "c");
+        var view = set.h();
+
+        assertEquals(HashSet.of("a", "b"), set.filter(x -> !x.equals("c")));
+        assertEquals(HashSet.of("A", "B", "C"), set.map(x -> ((String) x).toUpperCase()));
+        assertEquals(2, set.take(2).size());
+        assertSame(view, set.h());
+
+        set.add("d");
+
+        assertNotSame(view, set.h());
+        assertEquals(HashSet.of("a", "b", "c", "d"), set.h());
+        assertEquals(HashSet.of("a", "b", "c"), view);
+    }
+
+    @Test
+    public void everyWriteDropsTheView() {
+        var set = set("a", "b", "c");
+
+        var view = set.h();
+        set.remove("a");
+        assertNotSame(view, set.h());
+        assertEquals(HashSet.of("b", "c"), set.h());
+
+        view = set.h();
+        set.retainAll(HashSet.of("b"));
+        assertNotSame(view, set.h());
+        assertEquals(HashSet.of("b"), set.h());
+
+        set.replace("b", "z");
+        assertEquals(HashSet.of("z"), set.h());
+
+        set.clear();
+        assertEquals(HashSet.empty(), set.h());
+    }
+}
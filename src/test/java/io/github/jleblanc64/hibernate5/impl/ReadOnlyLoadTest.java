@@ -0,0 +1,99 @@
+package io.github.jleblanc64.hibernate5.impl;
+
+import io.github.jleblanc64.hibernate5.SessionFactoryTest;
+import org.hibernate.LockMode;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadOnlyLoadTest extends SessionFactoryTest {
+    public ReadOnlyLoadTest() {
+        super(true, Owner.class, Reader.class);
+    }
+
+    @BeforeAll
+    void insert() {
+        inTransaction(session -> {
+            var reader = new Reader();
+            reader.id = 1L;
+            reader.tags = io.vavr.collection.List.of("a", "b");
+            session.persist(reader);
+        });
+    }
+
+    // swapped when the collection is initialized, the flushes leave the plain value in the field and the rows in the table
+    @Test
+    public void plainValueSurvivesTheFlush() {
+        inTransaction(session -> {
+            session.setDefaultReadOnly(true);
+            var reader = session.get(Reader.class, 1L);
+            assertInstanceOf(PersistentCollection.class, reader.tags);
+
+            reader.tags.size();
+            assertFalse(reader.tags instanceof PersistentCollection);
+
+            session.flush();
+            assertFalse(reader.tags instanceof PersistentCollection);
+            assertEquals(io.vavr.collection.List.of("a", "b"), reader.tags);
+        });
+
+        assertEquals(Arrays.asList("a", "b"), fromTransaction(session -> session.get(Reader.class, 1L).tags.toJavaList()));
+    }
+
+    // the wrapper stays in the embeddable and can be written, so it needs its snapshot
+    @Test
+    public void collectionInEmbeddableKeepsItsSnapshot() {
+        try (var session = (SessionImplementor) factory.openSession()) {
+            var context = session.getPersistenceContextInternal();
+            var owner = new Owner();
+            owner.id = 1L;
+            owner.details = new Details();
+            context.addEntry(owner, Status.READ_ONLY, new Object[1], null, 1L, null, LockMode.NONE, true,
+                    factory.getMetamodel().entityPersister(Owner.class), false);
+
+            var persister = factory.getMetamodel().collectionPersister(Owner.class.getName() + ".details.tags");
+            var bag = new PersistentBagImpl(session, new ArrayList<>(Arrays.asList("a", "b")));
+            bag.setOwner(owner);
+            context.addInitializedCollection(persister, bag, 1L);
+
+            assertEquals(Arrays.asList("a", "b"), bag.getStoredSnapshot());
+        }
+    }
+
+    @Entity
+    public static class Owner {
+        @Id
+        Long id;
+
+        @Embedded
+        Details details;
+    }
+
+    @Entity
+    public static class Reader {
+        @Id
+        Long id;
+
+        @ElementCollection
+        io.vavr.collection.List<String> tags;
+    }
+
+    @Embeddable
+    public static class Details {
+        @ElementCollection
+        List<String> tags;
+    }
+}